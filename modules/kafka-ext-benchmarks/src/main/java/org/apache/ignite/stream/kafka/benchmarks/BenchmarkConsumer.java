@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+
+/**
+ * Mock consumer of a single partition generating the requested number of records on poll, so that the streamer can
+ * be benchmarked without a Kafka broker.
+ */
+class BenchmarkConsumer extends MockConsumer<String, String> {
+    /** Partition assigned to the consumer. */
+    private final TopicPartition part;
+
+    /** Maximum number of records returned by a single poll. */
+    private final int maxPollRecords;
+
+    /** Record keys. */
+    private final String[] keys;
+
+    /** Record value. */
+    private final String val;
+
+    /** Sizes of the polls to be returned. */
+    private final BlockingQueue<Integer> polls = new LinkedBlockingQueue<>();
+
+    /** Offset of the next record. */
+    private long offset;
+
+    /**
+     * @param part Partition assigned to the consumer.
+     * @param maxPollRecords Maximum number of records returned by a single poll.
+     * @param keys Record keys, used in turn.
+     * @param val Record value.
+     */
+    BenchmarkConsumer(TopicPartition part, int maxPollRecords, String[] keys, String val) {
+        super(OffsetResetStrategy.EARLIEST);
+
+        this.part = part;
+        this.maxPollRecords = maxPollRecords;
+        this.keys = keys;
+        this.val = val;
+    }
+
+    /**
+     * Makes the given number of records available to the following polls.
+     *
+     * @param cnt Number of records.
+     */
+    void feed(int cnt) {
+        for (int i = 0; i < cnt; i += maxPollRecords)
+            polls.add(Math.min(maxPollRecords, cnt - i));
+    }
+
+    /** {@inheritDoc} */
+    @Override public synchronized void subscribe(Collection<String> topics, ConsumerRebalanceListener lsnr) {
+        super.subscribe(topics, lsnr);
+
+        rebalance(Collections.singleton(part));
+    }
+
+    /** {@inheritDoc} */
+    @Override public ConsumerRecords<String, String> poll(long timeout) {
+        Integer cnt;
+
+        try {
+            cnt = polls.poll(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptException(e);
+        }
+
+        if (cnt == null)
+            return ConsumerRecords.empty();
+
+        List<ConsumerRecord<String, String>> records = new ArrayList<>(cnt);
+
+        for (int i = 0; i < cnt; i++, offset++)
+            records.add(new ConsumerRecord<>(part.topic(), part.partition(), offset,
+                keys[(int)(offset % keys.length)], val));
+
+        return new ConsumerRecords<>(Collections.singletonMap(part, records));
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.benchmarks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.IgniteDataStreamer;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.internal.util.typedef.internal.U;
+import org.apache.ignite.lang.IgniteBiTuple;
+import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
+import org.apache.ignite.spi.discovery.tcp.ipfinder.vm.TcpDiscoveryVmIpFinder;
+import org.apache.ignite.stream.StreamReceiver;
+import org.apache.ignite.stream.kafka.KafkaStreamer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures throughput of {@link KafkaStreamer} ingesting records into an in-process Ignite node. Records are
+ * generated by mock consumers, so no Kafka broker is required.
+ * <p>
+ * Each invocation hands {@link #RECORDS} records to the consumers and waits until all of them reach the cache, so the
+ * score is the number of streamed records per second. Run {@link #main(String[])} or the shaded
+ * {@code benchmarks.jar} with {@code -prof gc} to also measure the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(KafkaStreamerBenchmark.RECORDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class KafkaStreamerBenchmark {
+    /** Number of records streamed per invocation. */
+    static final int RECORDS = 100_000;
+
+    /** Number of distinct keys. */
+    private static final int KEYS = 10_000;
+
+    /** Maximum number of records returned by a single poll. */
+    private static final int MAX_POLL_RECORDS = 500;
+
+    /** Cache name. */
+    private static final String CACHE_NAME = "kafka-benchmark";
+
+    /** Topic name. */
+    private static final String TOPIC = "kafka-benchmark";
+
+    /** Maximum time to wait for an invocation to complete in milliseconds. */
+    private static final long INVOCATION_TIMEOUT = 60_000;
+
+    /** Number of entries received by the cache. */
+    private static final LongAdder RECEIVED = new LongAdder();
+
+    /** Tuple extractor: {@code single} or {@code multiple}. */
+    @Param({"single", "multiple"})
+    private String extractor;
+
+    /** Number of consumer threads. */
+    @Param({"1", "4"})
+    private int threads;
+
+    /** Whether records are added to the data streamer in batches. */
+    @Param({"false", "true"})
+    private boolean batchMode;
+
+    /** Ignite node. */
+    private Ignite ignite;
+
+    /** Data streamer. */
+    private IgniteDataStreamer<String, String> dataStmr;
+
+    /** Kafka streamer. */
+    private KafkaStreamer<String, String> kafkaStmr;
+
+    /** Mock consumers created by the Kafka streamer. */
+    private final List<BenchmarkConsumer> consumers = new CopyOnWriteArrayList<>();
+
+    /** Starts the node and the streamer. */
+    @Setup
+    public void setup() {
+        TcpDiscoveryVmIpFinder ipFinder = new TcpDiscoveryVmIpFinder()
+            .setAddresses(Collections.singleton("127.0.0.1:47500..47509"));
+
+        ignite = Ignition.start(new IgniteConfiguration()
+            .setIgniteInstanceName("kafka-benchmark")
+            .setLocalHost("127.0.0.1")
+            .setDiscoverySpi(new TcpDiscoverySpi().setIpFinder(ipFinder))
+            .setCacheConfiguration(new CacheConfiguration<>(CACHE_NAME)));
+
+        dataStmr = ignite.dataStreamer(CACHE_NAME);
+
+        dataStmr.allowOverwrite(true);
+        dataStmr.autoFlushFrequency(10);
+        dataStmr.receiver(new CountingReceiver());
+
+        String[] keys = IntStream.range(0, KEYS).mapToObj(Integer::toString).toArray(String[]::new);
+
+        String val = new String(new char[100]).replace('\0', 'v');
+
+        kafkaStmr = new KafkaStreamer<String, String>() {
+            @Override protected Consumer<?, ?> createConsumer(Properties cfg) {
+                BenchmarkConsumer consumer = new BenchmarkConsumer(new TopicPartition(TOPIC, consumers.size()),
+                    MAX_POLL_RECORDS, keys, val);
+
+                consumers.add(consumer);
+
+                return consumer;
+            }
+        };
+
+        Properties consumerCfg = new Properties();
+
+        consumerCfg.put(ConsumerConfig.GROUP_ID_CONFIG, "kafka-benchmark");
+
+        kafkaStmr.setIgnite(ignite);
+        kafkaStmr.setStreamer(dataStmr);
+        kafkaStmr.setTopic(Collections.singletonList(TOPIC));
+        kafkaStmr.setThreads(threads);
+        kafkaStmr.setConsumerConfig(consumerCfg);
+        kafkaStmr.setBatchMode(batchMode);
+
+        if ("single".equals(extractor))
+            kafkaStmr.setSingleTupleExtractor(rec -> new IgniteBiTuple<>((String)rec.key(), (String)rec.value()));
+        else if ("multiple".equals(extractor))
+            kafkaStmr.setMultipleTupleExtractor(
+                rec -> Collections.singletonMap((String)rec.key(), (String)rec.value()));
+        else
+            throw new IllegalArgumentException("Unknown extractor: " + extractor);
+
+        kafkaStmr.start();
+    }
+
+    /** Stops the streamer and the node. */
+    @TearDown
+    public void tearDown() {
+        kafkaStmr.stop();
+
+        dataStmr.close();
+
+        Ignition.stop(ignite.name(), true);
+
+        consumers.clear();
+    }
+
+    /**
+     * Streams {@link #RECORDS} records into the cache.
+     */
+    @Benchmark
+    public void ingest() {
+        long target = RECEIVED.sum() + RECORDS;
+
+        for (BenchmarkConsumer consumer : consumers)
+            consumer.feed(RECORDS / threads);
+
+        long deadline = U.currentTimeMillis() + INVOCATION_TIMEOUT;
+
+        while (RECEIVED.sum() < target) {
+            if (U.currentTimeMillis() > deadline)
+                throw new IllegalStateException("Timed out waiting for records to be streamed.");
+
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    /**
+     * Runs the benchmarks with the GC profiler reporting the allocation rate.
+     *
+     * @param args Arguments.
+     * @throws RunnerException If failed.
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opts = new OptionsBuilder()
+            .include(KafkaStreamerBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(opts).run();
+    }
+
+    /** Receiver putting the entries to the cache and counting them. */
+    private static class CountingReceiver implements StreamReceiver<String, String> {
+        /** */
+        private static final long serialVersionUID = 0L;
+
+        /** {@inheritDoc} */
+        @Override public void receive(IgniteCache<String, String> cache,
+            Collection<Map.Entry<String, String>> entries) {
+            Map<String, String> m = U.newHashMap(entries.size());
+
+            for (Map.Entry<String, String> e : entries)
+                m.put(e.getKey(), e.getValue());
+
+            cache.putAll(m);
+
+            RECEIVED.add(entries.size());
+        }
+    }
+}
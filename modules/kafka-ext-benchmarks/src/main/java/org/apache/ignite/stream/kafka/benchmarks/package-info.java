@@ -15,15 +15,8 @@
  * limitations under the License.
  */
 
-package org.apache.ignite.stream.kafka.connect;
-
 /**
- * Sink task mock for tests. It avoids closing the grid from test to test.
+ * Contains JMH benchmarks of Kafka Streamer.
  */
-public class IgniteSinkTaskMock extends IgniteSinkTask {
-    /** {@inheritDoc} */
-    @Override public void stop() {
-        // Don't stop the grid for tests.
-        setStopped(true);
-    }
-}
+
+package org.apache.ignite.stream.kafka.benchmarks;
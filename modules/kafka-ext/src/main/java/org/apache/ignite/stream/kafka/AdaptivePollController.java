@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller of the polling of a {@link KafkaStreamer} consumer in adaptive polling mode.
+ * <p>
+ * The size of batches handed over to the data streamer is tuned by additive increase and multiplicative decrease:
+ * it grows while full batches are added to the data streamer faster than the latency threshold, and is halved when
+ * an {@code addData} call exceeds the threshold, which means that the data streamer applies back-pressure.
+ * The poll timeout grows exponentially while polls return no records, and falls back to the minimum as soon as
+ * records arrive.
+ * <p>
+ * Polling and batch size are updated from the polling thread, latency is reported from the threads adding batches to
+ * the data streamer. Concurrent updates may be lost, which only slows down the adaptation.
+ */
+class AdaptivePollController {
+    /** Minimal batch size. */
+    private final int minBatchSize;
+
+    /** Maximal batch size. */
+    private final int maxBatchSize;
+
+    /** Minimal poll timeout in milliseconds. */
+    private final long minTimeout;
+
+    /** Maximal poll timeout in milliseconds. */
+    private final long maxTimeout;
+
+    /** Latency threshold of an {@code addData} call in nanoseconds. */
+    private final long latencyThreshold;
+
+    /** Current batch size. */
+    private volatile int batchSize;
+
+    /** Current poll timeout in milliseconds. */
+    private volatile long timeout;
+
+    /**
+     * @param minBatchSize Minimal batch size.
+     * @param maxBatchSize Maximal batch size.
+     * @param minTimeout Minimal poll timeout in milliseconds.
+     * @param maxTimeout Maximal poll timeout in milliseconds.
+     * @param latencyThreshold Latency threshold of an {@code addData} call in milliseconds.
+     */
+    AdaptivePollController(int minBatchSize, int maxBatchSize, long minTimeout, long maxTimeout,
+        long latencyThreshold) {
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.latencyThreshold = TimeUnit.MILLISECONDS.toNanos(latencyThreshold);
+
+        batchSize = minBatchSize;
+        timeout = minTimeout;
+    }
+
+    /**
+     * @return Current batch size.
+     */
+    int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return Current poll timeout in milliseconds.
+     */
+    long timeout() {
+        return timeout;
+    }
+
+    /**
+     * @return Maximal time in milliseconds records may be accumulated before they are handed over to the data
+     *      streamer.
+     */
+    long maxTimeout() {
+        return maxTimeout;
+    }
+
+    /**
+     * Callback for a completed poll.
+     *
+     * @param cnt Number of polled records.
+     */
+    void onPoll(int cnt) {
+        timeout = cnt == 0 ? Math.min(timeout * 2, maxTimeout) : minTimeout;
+    }
+
+    /**
+     * Callback for a batch added to the data streamer.
+     *
+     * @param size Number of records in the batch.
+     * @param nanos Time of the {@code addData} call in nanoseconds.
+     */
+    void onAddData(int size, long nanos) {
+        int cur = batchSize;
+
+        if (nanos > latencyThreshold)
+            batchSize = Math.max(cur / 2, minBatchSize);
+        else if (size >= cur)
+            batchSize = Math.min(cur + Math.max(cur / 4, 1), maxBatchSize);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.ignite.IgniteException;
+import org.apache.ignite.IgniteLogger;
+import org.apache.ignite.internal.util.typedef.internal.A;
+import org.apache.ignite.internal.util.typedef.internal.U;
+import org.apache.ignite.lifecycle.LifecycleAware;
+import org.apache.ignite.resources.LoggerResource;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+/**
+ * Record failure handler which sends failed records to a dead-letter Kafka topic. Records are sent with their
+ * original keys, values and headers, so the producer serializers must match the deserializers of the streamer's
+ * consumers. Failure details are added as headers: {@link #ERROR_HEADER}, {@link #TOPIC_HEADER},
+ * {@link #PARTITION_HEADER} and {@link #OFFSET_HEADER}.
+ * <p>
+ * A record is taken only once the dead-letter topic acknowledges it, so that its offset is not committed if it fails
+ * to be sent within the {@link #setSendTimeout(long) timeout}. Records are sent one by one, so the handler is meant
+ * for occasional failures rather than for failures of whole batches of a high-volume topic.
+ * <p>
+ * A single producer is shared by all consumers of the streamer. It is created on streamer start and closed on stop.
+ */
+public class DeadLetterRecordFailureHandler implements RecordFailureHandler, LifecycleAware {
+    /** Header with the failure cause. */
+    public static final String ERROR_HEADER = "ignite.error";
+
+    /** Header with the source topic. */
+    public static final String TOPIC_HEADER = "ignite.source.topic";
+
+    /** Header with the source partition. */
+    public static final String PARTITION_HEADER = "ignite.source.partition";
+
+    /** Header with the source offset. */
+    public static final String OFFSET_HEADER = "ignite.source.offset";
+
+    /** Default timeout of sending a record to the dead-letter topic in milliseconds. */
+    public static final long DFLT_SEND_TIMEOUT = 30_000;
+
+    /** Logger. */
+    @LoggerResource
+    private IgniteLogger log;
+
+    /** Dead-letter topic. */
+    private final String topic;
+
+    /** Producer config. */
+    private final Properties producerCfg;
+
+    /** Shared producer. */
+    private volatile Producer<Object, Object> producer;
+
+    /** Timeout of sending a record to the dead-letter topic in milliseconds. */
+    private long sendTimeout = DFLT_SEND_TIMEOUT;
+
+    /**
+     * @param topic Dead-letter topic.
+     * @param producerCfg Kafka producer config.
+     */
+    public DeadLetterRecordFailureHandler(String topic, Properties producerCfg) {
+        A.notNullOrEmpty(topic, "dead-letter topic");
+        A.notNull(producerCfg, "kafka producer config");
+
+        this.topic = topic;
+        this.producerCfg = producerCfg;
+    }
+
+    /**
+     * Sets the timeout of sending a record to the dead-letter topic. Records not acknowledged within the timeout are
+     * not taken by the handler.
+     *
+     * @param sendTimeout Timeout in milliseconds.
+     */
+    public void setSendTimeout(long sendTimeout) {
+        A.ensure(sendTimeout > 0, "sendTimeout > 0");
+
+        this.sendTimeout = sendTimeout;
+    }
+
+    /** {@inheritDoc} */
+    @Override public void start() throws IgniteException {
+        producer = createProducer(producerCfg);
+    }
+
+    /**
+     * Creates the shared producer.
+     *
+     * @param cfg Producer config.
+     * @return Kafka producer.
+     */
+    protected Producer<Object, Object> createProducer(Properties cfg) {
+        return new KafkaProducer<>(cfg);
+    }
+
+    /** {@inheritDoc} */
+    @Override public void stop() throws IgniteException {
+        if (producer != null) {
+            producer.close();
+
+            producer = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override public boolean onFailure(ConsumerRecord<?, ?> record, Throwable err) {
+        Headers headers = new RecordHeaders(record.headers());
+
+        headers
+            .add(ERROR_HEADER, bytes(String.valueOf(err)))
+            .add(TOPIC_HEADER, bytes(record.topic()))
+            .add(PARTITION_HEADER, bytes(String.valueOf(record.partition())))
+            .add(OFFSET_HEADER, bytes(String.valueOf(record.offset())));
+
+        ProducerRecord<Object, Object> deadLetter = new ProducerRecord<>(topic, null, record.key(), record.value(),
+            headers);
+
+        try {
+            producer.send(deadLetter).get(sendTimeout, TimeUnit.MILLISECONDS);
+
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            onSendFailure(record, e);
+        }
+        catch (ExecutionException | TimeoutException e) {
+            onSendFailure(record, e);
+        }
+
+        return false;
+    }
+
+    /**
+     * @param record Record failed to be sent.
+     * @param err Failure cause.
+     */
+    private void onSendFailure(ConsumerRecord<?, ?> record, Exception err) {
+        if (log != null)
+            U.error(log, "Failed to send record to dead-letter topic [topic=" + topic + ", record=" + record + ']',
+                err);
+    }
+
+    /**
+     * @param s String.
+     * @return UTF-8 bytes of the string.
+     */
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -17,41 +17,174 @@
 
 package org.apache.ignite.stream.kafka;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
+import org.apache.ignite.IgniteCheckedException;
 import org.apache.ignite.IgniteDataStreamer;
 import org.apache.ignite.IgniteException;
 import org.apache.ignite.IgniteLogger;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.internal.IgniteEx;
+import org.apache.ignite.internal.IgniteInterruptedCheckedException;
+import org.apache.ignite.internal.binary.BinaryContext;
+import org.apache.ignite.internal.binary.BinaryObjectImpl;
+import org.apache.ignite.internal.binary.BinaryPrimitives;
+import org.apache.ignite.internal.binary.GridBinaryMarshaller;
+import org.apache.ignite.internal.processors.cache.binary.CacheObjectBinaryProcessorImpl;
+import org.apache.ignite.internal.util.future.GridFutureAdapter;
 import org.apache.ignite.internal.util.typedef.internal.A;
 import org.apache.ignite.internal.util.typedef.internal.U;
+import org.apache.ignite.lang.IgniteBiTuple;
+import org.apache.ignite.lang.IgniteFuture;
+import org.apache.ignite.lifecycle.LifecycleAware;
 import org.apache.ignite.stream.StreamAdapter;
+import org.apache.ignite.stream.StreamMultipleTupleExtractor;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 
 /**
  * Server that subscribes to topic messages from Kafka broker and streams its to key-value pairs into
  * {@link IgniteDataStreamer} instance.
  * <p>
  * Uses Kafka's High Level Consumer API to read messages from Kafka.
+ * <p>
+ * By default every consumed record is streamed separately and consumer offsets are committed by Kafka's auto-commit.
+ * In batch mode (see {@link #setBatchMode(boolean)}) the result of each poll is streamed with a single
+ * {@link IgniteDataStreamer#addData(Map)} call, and offsets of the polled partitions are committed manually only after
+ * the data streamer has acknowledged the batch. This gives at-least-once delivery: records which were not written to
+ * the cache before a crash are consumed again on restart. Note that the data streamer completes a batch only when its
+ * buffers are flushed, so {@link IgniteDataStreamer#autoFlushFrequency(long)} should be configured in this mode.
+ * <p>
+ * In pipelined mode (see {@link #setPipelineWorkers(int)}) polling threads only hand polled batches over to bounded
+ * queues which are drained by a separate pool of ingest workers, so a data streamer applying back-pressure does not
+ * block polling and consumers keep sending heartbeats. Each consumer hands its batches over to the queue of a single
+ * worker, so that batches of a partition are ingested in the order of polling. When a queue reaches its high
+ * watermark, its consumers pause the assigned partitions until the queue is drained down to the low watermark
+ * (see {@link #setPipelineWatermarks(int, int)}).
+ * <p>
+ * Each of {@link #setThreads(int)} consumers runs on its own platform thread by default. Threads can be provided by
+ * a custom {@link ThreadFactory} (e.g. a virtual thread factory on a JVM supporting them), or consumers can be run
+ * by an external {@link ExecutorService}, see {@link #setThreadFactory(ThreadFactory)} and
+ * {@link #setExecutorService(ExecutorService)}.
+ * <p>
+ * Each started streamer registers its metrics (consumed records and batches, extraction and {@code addData} time,
+ * failures and per-partition consumer lag) in the Ignite metric registry named
+ * {@code kafka.streamer.<cache name>-<streamer index>}.
+ * <p>
+ * Records which cannot be streamed are passed to the {@link RecordFailureHandler}
+ * (see {@link #setFailureHandler(RecordFailureHandler)}). By default they are skipped and logged with a rate limit by
+ * {@link LoggingRecordFailureHandler}; {@link DeadLetterRecordFailureHandler} sends them to a dead-letter topic.
+ * Failed {@code addData} calls, and failed batches in batch mode, are retried with exponential backoff before
+ * the records are passed to the handler (see {@link #setRetries(int)} and {@link #setRetryBackoff(long)}). In batch
+ * mode offsets are committed past a failed batch only if the handler has taken all its records (see
+ * {@link RecordFailureHandler#onFailure(ConsumerRecord, Throwable)}). Otherwise the consumer is rewound to the failed
+ * batch, so that its records are consumed again. Failed batches are retried, and rewound partitions are paused for the
+ * backoff, without blocking the poll of the other partitions. Failed batches are retried by the ingest workers in
+ * pipelined mode.
+ * <p>
+ * For topics whose values are already Ignite binary-marshalled objects, binary pass-through mode
+ * (see {@link #setBinaryPassThrough(boolean)}) consumes values as raw bytes and streams them as {@link BinaryObject}s
+ * wrapping these bytes, skipping deserialization into an object graph and marshalling it again.
+ * <p>
+ * Before partitions are revoked from a consumer during a consumer group rebalance, the data streamer is flushed and
+ * offsets of the streamed records are committed, so that the new owners of the partitions do not consume them again.
+ * In non-batch mode offsets are committed only if auto-commit is enabled in the consumer config. If the flush fails,
+ * offsets of the revoked partitions are not committed and their records are consumed again by the new owners.
+ * <p>
+ * In adaptive polling mode (see {@link #setAdaptivePolling(boolean)}) each consumer accumulates polled records into
+ * batches whose size grows while the data streamer keeps up and shrinks when {@code addData} latency rises,
+ * and uses longer poll timeouts while topics are idle. See {@link AdaptivePollController} for details.
  */
 public class KafkaStreamer<K, V> extends StreamAdapter<ConsumerRecord, K, V> {
     /** Default polling timeout. */
     private static final long DFLT_TIMEOUT = 100;
 
+    /** Timeout of waiting for consumer and ingest tasks to complete on stop. */
+    private static final long STOP_TIMEOUT = 5000;
+
+    /** Default number of queued batches at which consumers resume polling in pipelined mode. */
+    private static final int DFLT_PIPELINE_LOW_WATERMARK = 4;
+
+    /** Default number of queued batches at which consumers pause polling in pipelined mode. */
+    private static final int DFLT_PIPELINE_HIGH_WATERMARK = 16;
+
+    /** Default initial delay between retries in milliseconds. */
+    private static final long DFLT_RETRY_BACKOFF = 100;
+
+    /** Default minimal batch size in adaptive polling mode. */
+    private static final int DFLT_ADAPTIVE_MIN_BATCH_SIZE = 100;
+
+    /** Default maximal batch size in adaptive polling mode. */
+    private static final int DFLT_ADAPTIVE_MAX_BATCH_SIZE = 10_000;
+
+    /** Default minimal poll timeout in adaptive polling mode. */
+    private static final long DFLT_ADAPTIVE_MIN_TIMEOUT = 10;
+
+    /** Default maximal poll timeout in adaptive polling mode. */
+    private static final long DFLT_ADAPTIVE_MAX_TIMEOUT = 1000;
+
+    /** Default {@code addData} latency threshold in adaptive polling mode. */
+    private static final long DFLT_ADAPTIVE_LATENCY_THRESHOLD = 50;
+
+    /** Default {@link ConsumerConfig#MAX_POLL_INTERVAL_CONFIG} of Kafka consumers. */
+    private static final long DFLT_MAX_POLL_INTERVAL = 300_000;
+
+    /** Maximum exponent of the retry backoff. */
+    private static final int MAX_BACKOFF_EXP = 10;
+
+    /** Lag metrics update frequency in milliseconds. */
+    private static final long LAG_UPDATE_FREQ = 1000;
+
+    /** Index of the streamer used in its metric registry name. */
+    private static final AtomicInteger STREAMER_IDX = new AtomicInteger();
+
     /** Logger. */
     private IgniteLogger log;
 
+    /** Metrics. */
+    private KafkaStreamerMetrics metrics;
+
     /** Polling tasks executor. */
     private ExecutorService executor;
 
+    /** Whether polling tasks executor is provided by user. */
+    private boolean externalExecutor;
+
+    /** Factory of polling and ingest threads, {@code null} for the default one. */
+    private ThreadFactory threadFactory;
+
     /** Topics. */
     private List<String> topics;
 
@@ -64,9 +197,69 @@ public class KafkaStreamer<K, V> extends StreamAdapter<ConsumerRecord, K, V> {
     /** Polling timeout. */
     private long timeout = DFLT_TIMEOUT;
 
+    /** Batch mode flag. */
+    private boolean batchMode;
+
+    /** Number of ingest workers in pipelined mode, {@code 0} if pipelined mode is disabled. */
+    private int pipelineWorkers;
+
+    /** Number of queued batches at which consumers resume polling in pipelined mode. */
+    private int pipelineLowWatermark = DFLT_PIPELINE_LOW_WATERMARK;
+
+    /** Number of queued batches at which consumers pause polling in pipelined mode. */
+    private int pipelineHighWatermark = DFLT_PIPELINE_HIGH_WATERMARK;
+
+    /** Adaptive polling flag. */
+    private boolean adaptivePolling;
+
+    /** Minimal batch size in adaptive polling mode. */
+    private int adaptiveMinBatchSize = DFLT_ADAPTIVE_MIN_BATCH_SIZE;
+
+    /** Maximal batch size in adaptive polling mode. */
+    private int adaptiveMaxBatchSize = DFLT_ADAPTIVE_MAX_BATCH_SIZE;
+
+    /** Minimal poll timeout in adaptive polling mode. */
+    private long adaptiveMinTimeout = DFLT_ADAPTIVE_MIN_TIMEOUT;
+
+    /** Maximal poll timeout in adaptive polling mode. */
+    private long adaptiveMaxTimeout = DFLT_ADAPTIVE_MAX_TIMEOUT;
+
+    /** {@code addData} latency threshold in adaptive polling mode. */
+    private long adaptiveLatencyThreshold = DFLT_ADAPTIVE_LATENCY_THRESHOLD;
+
+    /** Binary pass-through flag. */
+    private boolean binaryPassThrough;
+
+    /** Binary context used to wrap record values in binary pass-through mode. */
+    private BinaryContext binCtx;
+
+    /** Handler of records failed to be streamed. */
+    private RecordFailureHandler failureHnd = new LoggingRecordFailureHandler();
+
+    /** Number of retries of failed {@code addData} calls. */
+    private int retries;
+
+    /** Initial delay between retries in milliseconds. */
+    private long retryBackoff = DFLT_RETRY_BACKOFF;
+
+    /** Maximal delay between retries in milliseconds, below the maximal interval between consumer polls. */
+    private long maxRetryDelay;
+
+    /** Whether consumers commit offsets automatically, never in batch mode. */
+    private boolean autoCommit;
+
+    /** Ingest tasks executor in pipelined mode. */
+    private ExecutorService ingestExecutor;
+
     /** Kafka consumer tasks. */
     private final List<ConsumerTask> consumerTasks = new ArrayList<>();
 
+    /** Futures of Kafka consumer tasks submitted to the external executor. */
+    private final List<Future<Void>> consumerFuts = new ArrayList<>();
+
+    /** Ingest tasks in pipelined mode. */
+    private final List<IngestTask> ingestTasks = new ArrayList<>();
+
     /**
      * Sets the topic names.
      *
@@ -105,6 +298,173 @@ public class KafkaStreamer<K, V> extends StreamAdapter<ConsumerRecord, K, V> {
         this.timeout = timeout;
     }
 
+    /**
+     * Enables or disables batch mode. In batch mode records of each poll are streamed as a single batch, and consumer
+     * offsets are committed only after the batch is written to the cache. Kafka auto-commit is disabled in this mode.
+     *
+     * @param batchMode {@code True} to enable batch mode.
+     */
+    public void setBatchMode(boolean batchMode) {
+        this.batchMode = batchMode;
+    }
+
+    /**
+     * Sets the number of ingest workers which extract polled records and add them to the data streamer. A positive
+     * value enables pipelined mode, {@code 0} (default) streams records directly from polling threads. Batches of
+     * a consumer are ingested by a single worker to keep their order, so at most {@link #setThreads(int)} workers
+     * are started.
+     *
+     * @param pipelineWorkers Number of ingest workers.
+     */
+    public void setPipelineWorkers(int pipelineWorkers) {
+        A.ensure(pipelineWorkers >= 0, "pipelineWorkers >= 0");
+
+        this.pipelineWorkers = pipelineWorkers;
+    }
+
+    /**
+     * Sets the watermarks of the queue of polled batches in pipelined mode. Consumers pause the assigned partitions
+     * when the number of queued batches reaches the high watermark and resume them when it drops to the low watermark.
+     *
+     * @param lowWatermark Number of queued batches at which consumers resume polling.
+     * @param highWatermark Number of queued batches at which consumers pause polling.
+     */
+    public void setPipelineWatermarks(int lowWatermark, int highWatermark) {
+        A.ensure(lowWatermark >= 0, "lowWatermark >= 0");
+        A.ensure(highWatermark > lowWatermark, "highWatermark > lowWatermark");
+
+        pipelineLowWatermark = lowWatermark;
+        pipelineHighWatermark = highWatermark;
+    }
+
+    /**
+     * Sets the factory of polling threads and ingest threads of pipelined mode. By default platform threads are
+     * created. Use a virtual thread factory to run consumers without paying for platform thread stacks.
+     *
+     * @param threadFactory Thread factory.
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Sets the external executor to run polling tasks on. The executor must be able to run all {@link #setThreads(int)}
+     * polling tasks concurrently, as each of them occupies its thread until the streamer is stopped. The executor is
+     * not shut down when the streamer is stopped.
+     *
+     * @param executor Executor.
+     */
+    public void setExecutorService(ExecutorService executor) {
+        this.executor = executor;
+
+        externalExecutor = executor != null;
+    }
+
+    /**
+     * Enables or disables adaptive polling mode. In this mode batch size and poll timeout are tuned within the bounds
+     * set by {@link #setAdaptiveBatchSize(int, int)} and {@link #setAdaptiveTimeout(long, long)}, and the timeout set
+     * by {@link #setTimeout(long)} is not used. Requires batch mode.
+     *
+     * @param adaptivePolling {@code True} to enable adaptive polling mode.
+     */
+    public void setAdaptivePolling(boolean adaptivePolling) {
+        this.adaptivePolling = adaptivePolling;
+    }
+
+    /**
+     * Sets the bounds of the number of records in a batch in adaptive polling mode. A single poll is additionally
+     * limited by {@link ConsumerConfig#MAX_POLL_RECORDS_CONFIG}, so batches larger than it span several polls.
+     *
+     * @param minBatchSize Minimal batch size.
+     * @param maxBatchSize Maximal batch size.
+     */
+    public void setAdaptiveBatchSize(int minBatchSize, int maxBatchSize) {
+        A.ensure(minBatchSize > 0, "minBatchSize > 0");
+        A.ensure(maxBatchSize >= minBatchSize, "maxBatchSize >= minBatchSize");
+
+        adaptiveMinBatchSize = minBatchSize;
+        adaptiveMaxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Sets the bounds of the poll timeout in adaptive polling mode. The maximal timeout also limits the time records
+     * are accumulated before they are handed over to the data streamer.
+     *
+     * @param minTimeout Minimal timeout in milliseconds.
+     * @param maxTimeout Maximal timeout in milliseconds.
+     */
+    public void setAdaptiveTimeout(long minTimeout, long maxTimeout) {
+        A.ensure(minTimeout > 0, "minTimeout > 0");
+        A.ensure(maxTimeout >= minTimeout, "maxTimeout >= minTimeout");
+
+        adaptiveMinTimeout = minTimeout;
+        adaptiveMaxTimeout = maxTimeout;
+    }
+
+    /**
+     * Sets the latency of an {@code addData} call above which the data streamer is considered applying back-pressure
+     * and the batch size is reduced in adaptive polling mode.
+     *
+     * @param latencyThreshold Latency threshold in milliseconds.
+     */
+    public void setAdaptiveLatencyThreshold(long latencyThreshold) {
+        A.ensure(latencyThreshold > 0, "latencyThreshold > 0");
+
+        adaptiveLatencyThreshold = latencyThreshold;
+    }
+
+    /**
+     * Enables or disables binary pass-through mode. In this mode record values are consumed with
+     * {@link ByteArrayDeserializer}, which overrides the configured value deserializer, and must contain Ignite
+     * binary-marshalled objects. Each value is streamed as a {@link BinaryObject} wrapping the consumed bytes, and
+     * the record key is used as the cache key as is. Tuple extractors are not used in this mode.
+     * <p>
+     * Records with {@code null} values, e.g. tombstones of compacted topics, and records whose values are not
+     * binary objects fail to be streamed and are passed to the failure handler (see
+     * {@link #setFailureHandler(RecordFailureHandler)}). In particular, a {@code null} value does not remove the
+     * key from the cache.
+     *
+     * @param binaryPassThrough {@code True} to enable binary pass-through mode.
+     */
+    public void setBinaryPassThrough(boolean binaryPassThrough) {
+        this.binaryPassThrough = binaryPassThrough;
+    }
+
+    /**
+     * Sets the handler of records failed to be streamed. Defaults to {@link LoggingRecordFailureHandler}.
+     *
+     * @param failureHnd Failure handler.
+     */
+    public void setFailureHandler(RecordFailureHandler failureHnd) {
+        A.notNull(failureHnd, "failureHnd");
+
+        this.failureHnd = failureHnd;
+    }
+
+    /**
+     * Sets the number of retries of a failed {@code addData} call, or of a failed batch in batch mode, before
+     * the records are passed to the failure handler. Defaults to {@code 0}.
+     *
+     * @param retries Number of retries.
+     */
+    public void setRetries(int retries) {
+        A.ensure(retries >= 0, "retries >= 0");
+
+        this.retries = retries;
+    }
+
+    /**
+     * Sets the initial delay between retries. The delay is doubled on each subsequent retry, up to half of
+     * {@link ConsumerConfig#MAX_POLL_INTERVAL_CONFIG}, so that a consumer backing off is not considered failed.
+     *
+     * @param retryBackoff Delay in milliseconds.
+     */
+    public void setRetryBackoff(long retryBackoff) {
+        A.ensure(retryBackoff >= 0, "retryBackoff >= 0");
+
+        this.retryBackoff = retryBackoff;
+    }
+
     /**
      * Starts streamer.
      *
@@ -116,17 +476,76 @@ public class KafkaStreamer<K, V> extends StreamAdapter<ConsumerRecord, K, V> {
         A.notNull(topics, "topics");
         A.notNull(consumerCfg, "kafka consumer config");
         A.ensure(threads > 0, "threads > 0");
-        A.ensure(null != getSingleTupleExtractor() || null != getMultipleTupleExtractor(),
+        A.ensure(binaryPassThrough || null != getSingleTupleExtractor() || null != getMultipleTupleExtractor(),
             "Extractor must be configured");
+        A.ensure(!adaptivePolling || batchMode, "Batch mode must be enabled for adaptive polling");
 
         log = getIgnite().log();
 
-        executor = Executors.newFixedThreadPool(threads);
+        metrics = new KafkaStreamerMetrics((IgniteEx)getIgnite(),
+            getStreamer().cacheName() + '-' + STREAMER_IDX.incrementAndGet());
 
-        IntStream.range(0, threads).forEach(i -> consumerTasks.add(new ConsumerTask(consumerCfg)));
+        if (binaryPassThrough)
+            binCtx = ((CacheObjectBinaryProcessorImpl)((IgniteEx)getIgnite()).context().cacheObjects()).binaryContext();
 
-        for (ConsumerTask task : consumerTasks)
-            executor.submit(task);
+        try {
+            ((IgniteEx)getIgnite()).context().resource().injectGeneric(failureHnd);
+        }
+        catch (IgniteCheckedException e) {
+            throw new IgniteException("Failed to inject resources into record failure handler.", e);
+        }
+
+        if (failureHnd instanceof LifecycleAware)
+            ((LifecycleAware)failureHnd).start();
+
+        if (pipelineWorkers > 0) {
+            int workers = Math.min(pipelineWorkers, threads);
+
+            // Each consumer can put one more batch after the high watermark is reached.
+            int queueCap = pipelineHighWatermark + (threads + workers - 1) / workers;
+
+            ingestExecutor = newFixedThreadPool(workers);
+
+            IntStream.range(0, workers).forEach(i -> ingestTasks.add(new IngestTask(queueCap)));
+
+            for (IngestTask task : ingestTasks)
+                ingestExecutor.submit(task);
+        }
+
+        if (!externalExecutor)
+            executor = newFixedThreadPool(threads);
+
+        Properties cfg = consumerCfg;
+
+        if (batchMode || binaryPassThrough) {
+            cfg = new Properties();
+
+            cfg.putAll(consumerCfg);
+
+            if (batchMode)
+                cfg.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+            if (binaryPassThrough)
+                cfg.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        }
+
+        autoCommit = Boolean.parseBoolean(
+            String.valueOf(cfg.getOrDefault(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "true")));
+
+        maxRetryDelay = Long.parseLong(
+            String.valueOf(cfg.getOrDefault(ConsumerConfig.MAX_POLL_INTERVAL_CONFIG, DFLT_MAX_POLL_INTERVAL))) / 2;
+
+        Properties taskCfg = cfg;
+
+        IntStream.range(0, threads).forEach(i -> consumerTasks.add(new ConsumerTask(taskCfg,
+            ingestTasks.isEmpty() ? null : ingestTasks.get(i % ingestTasks.size()).queue)));
+
+        for (ConsumerTask task : consumerTasks) {
+            Future<Void> fut = executor.submit(task);
+
+            if (externalExecutor)
+                consumerFuts.add(fut);
+        }
     }
 
     /**
@@ -136,64 +555,781 @@ public class KafkaStreamer<K, V> extends StreamAdapter<ConsumerRecord, K, V> {
         for (ConsumerTask task : consumerTasks)
             task.stop();
 
-        if (executor != null) {
-            executor.shutdown();
+        if (externalExecutor)
+            awaitTermination(consumerFuts, "consumer");
+        else
+            shutdown(executor, "consumer");
+
+        // Ingest workers are stopped after consumers, so that consumers can wait for their batches on stop.
+        for (IngestTask task : ingestTasks)
+            task.stop();
+
+        shutdown(ingestExecutor, "ingest");
+
+        if (failureHnd instanceof LifecycleAware)
+            ((LifecycleAware)failureHnd).stop();
+
+        if (metrics != null)
+            metrics.unregister();
+    }
+
+    /**
+     * Shuts down the executor and waits for its tasks to complete.
+     *
+     * @param exec Executor.
+     * @param name Name of the executor threads.
+     */
+    private void shutdown(ExecutorService exec, String name) {
+        if (exec == null)
+            return;
+
+        exec.shutdown();
+
+        try {
+            if (!exec.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS))
+                if (log.isDebugEnabled())
+                    log.debug("Timed out waiting for " + name + " threads to shut down, exiting uncleanly.");
+        }
+        catch (InterruptedException ignored) {
+            if (log.isDebugEnabled())
+                log.debug("Interrupted during shutdown, exiting uncleanly.");
+        }
+    }
+
+    /**
+     * Waits for the tasks submitted to an external executor to complete.
+     *
+     * @param futs Task futures.
+     * @param name Name of the tasks.
+     */
+    private void awaitTermination(List<Future<Void>> futs, String name) {
+        long end = U.currentTimeMillis() + STOP_TIMEOUT;
+
+        try {
+            for (Future<Void> fut : futs)
+                fut.get(Math.max(end - U.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException ignored) {
+            if (log.isDebugEnabled())
+                log.debug("Timed out waiting for " + name + " tasks to complete, exiting uncleanly.");
+        }
+        catch (ExecutionException e) {
+            U.error(log, "Failed to complete " + name + " task.", e);
+        }
+        catch (InterruptedException ignored) {
+            if (log.isDebugEnabled())
+                log.debug("Interrupted during shutdown, exiting uncleanly.");
+        }
+
+        futs.clear();
+    }
+
+    /**
+     * Creates a Kafka consumer of a polling thread.
+     *
+     * @param cfg Consumer config.
+     * @return Kafka consumer.
+     */
+    protected Consumer<?, ?> createConsumer(Properties cfg) {
+        return new KafkaConsumer<>(cfg);
+    }
+
+    /**
+     * Creates a fixed thread pool using the configured thread factory.
+     *
+     * @param size Pool size.
+     * @return Executor.
+     */
+    private ExecutorService newFixedThreadPool(int size) {
+        return threadFactory == null ? Executors.newFixedThreadPool(size) :
+            Executors.newFixedThreadPool(size, threadFactory);
+    }
+
+    /**
+     * Extracts cache entries from the record into the given map.
+     *
+     * @param rec Kafka record.
+     * @param entries Map to put extracted entries to.
+     */
+    private void extract(ConsumerRecord rec, Map<K, V> entries) {
+        if (binaryPassThrough) {
+            Map.Entry<K, V> e = wrapBinary(rec);
 
+            entries.put(e.getKey(), e.getValue());
+
+            return;
+        }
+
+        StreamMultipleTupleExtractor<ConsumerRecord, K, V> multipleExtractor = getMultipleTupleExtractor();
+
+        if (multipleExtractor != null) {
+            Map<K, V> m = multipleExtractor.extract(rec);
+
+            if (m != null)
+                entries.putAll(m);
+        }
+        else {
+            Map.Entry<K, V> e = getSingleTupleExtractor().extract(rec);
+
+            if (e != null)
+                entries.put(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Wraps the record value consumed as bytes into a binary object.
+     *
+     * @param rec Kafka record.
+     * @return Entry of the record key and the binary object.
+     * @throws IgniteException If the value is {@code null} or is not a binary object.
+     */
+    @SuppressWarnings("unchecked")
+    private Map.Entry<K, V> wrapBinary(ConsumerRecord rec) {
+        byte[] bytes = (byte[])rec.value();
+
+        if (bytes == null)
+            throw new IgniteException("Record value is null.");
+
+        if (bytes.length < GridBinaryMarshaller.DFLT_HDR_LEN || bytes[0] != GridBinaryMarshaller.OBJ ||
+            bytes[GridBinaryMarshaller.PROTO_VER_POS] != GridBinaryMarshaller.PROTO_VER ||
+            BinaryPrimitives.readInt(bytes, GridBinaryMarshaller.TOTAL_LEN_POS) != bytes.length)
+            throw new IgniteException("Record value is not a binary object.");
+
+        // There is no public API to wrap marshalled bytes into a binary object without copying them.
+        return new IgniteBiTuple<>((K)rec.key(), (V)new BinaryObjectImpl(binCtx, bytes, 0));
+    }
+
+    /**
+     * Adds polled records to the data streamer. In batch mode records are added with a single call.
+     *
+     * @param batch Batch of polled records.
+     */
+    private void ingest(Batch batch) {
+        if (!batchMode) {
+            ingestRecords(batch);
+
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        batch.entries = new HashMap<>(U.capacity(batch.records.count()));
+
+        for (ConsumerRecord record : batch.records) {
             try {
-                if (!executor.awaitTermination(5000, TimeUnit.MILLISECONDS))
-                    if (log.isDebugEnabled())
-                        log.debug("Timed out waiting for consumer threads to shut down, exiting uncleanly.");
+                extract(record, batch.entries);
             }
-            catch (InterruptedException ignored) {
-                if (log.isDebugEnabled())
-                    log.debug("Interrupted during shutdown, exiting uncleanly.");
+            catch (Exception e) {
+                batch.onExtractFailure(record);
+
+                onRecordFailure(record, e);
+            }
+        }
+
+        metrics.onExtract(System.nanoTime() - start);
+
+        submit(batch);
+    }
+
+    /**
+     * Adds extracted entries of the batch to the data streamer.
+     *
+     * @param batch Batch.
+     */
+    private void submit(Batch batch) {
+        long start = System.nanoTime();
+
+        try {
+            if (batch.entries.isEmpty())
+                batch.submitFut.onDone(Collections.emptyList());
+            else
+                batch.submitFut.onDone(Collections.singletonList(getStreamer().addData(batch.entries)));
+        }
+        catch (Exception e) {
+            batch.submitFut.onDone(e);
+        }
+
+        long time = System.nanoTime() - start;
+
+        metrics.onAddData(time);
+
+        if (batch.pollCtrl != null)
+            batch.pollCtrl.onAddData(batch.records.count(), time);
+    }
+
+    /**
+     * Adds polled records to the data streamer one by one.
+     *
+     * @param batch Batch of polled records.
+     */
+    private void ingestRecords(Batch batch) {
+        StreamMultipleTupleExtractor<ConsumerRecord, K, V> multipleExtractor = getMultipleTupleExtractor();
+
+        long extractTime = 0;
+        long addDataTime = 0;
+
+        for (ConsumerRecord record : batch.records) {
+            long start = System.nanoTime();
+
+            Map<K, V> m = null;
+            Map.Entry<K, V> entry = null;
+
+            try {
+                if (binaryPassThrough)
+                    entry = wrapBinary(record);
+                else if (multipleExtractor != null)
+                    m = multipleExtractor.extract(record);
+                else
+                    entry = getSingleTupleExtractor().extract(record);
+            }
+            catch (Exception e) {
+                onRecordFailure(record, e);
+
+                continue;
+            }
+
+            long extracted = System.nanoTime();
+
+            extractTime += extracted - start;
+
+            if (m != null && !m.isEmpty())
+                addData(record, m, null);
+            else if (entry != null)
+                addData(record, null, entry);
+
+            addDataTime += System.nanoTime() - extracted;
+        }
+
+        metrics.onExtract(extractTime);
+        metrics.onAddData(addDataTime);
+
+        batch.submitFut.onDone();
+    }
+
+    /**
+     * Adds entries extracted from a single record to the data streamer, retrying failed calls.
+     *
+     * @param record Record.
+     * @param m Entries extracted by the multiple tuple extractor, or {@code null}.
+     * @param entry Entry extracted by the single tuple extractor, or {@code null}.
+     */
+    private void addData(ConsumerRecord record, Map<K, V> m, Map.Entry<K, V> entry) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (m != null)
+                    getStreamer().addData(m);
+                else
+                    getStreamer().addData(entry);
+
+                return;
+            }
+            catch (Exception e) {
+                if (attempt >= retries || !sleepBeforeRetry(attempt)) {
+                    onRecordFailure(record, e);
+
+                    return;
+                }
             }
         }
     }
 
+    /**
+     * @param attempt Number of the failed attempt starting from {@code 0}.
+     * @return Delay before the next attempt in milliseconds.
+     */
+    private long retryDelay(int attempt) {
+        return Math.min(retryBackoff << Math.min(attempt, MAX_BACKOFF_EXP), maxRetryDelay);
+    }
+
+    /**
+     * Sleeps before the next attempt.
+     *
+     * @param attempt Number of the failed attempt starting from {@code 0}.
+     * @return {@code False} if the thread was interrupted.
+     */
+    private boolean sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(retryDelay(attempt));
+
+            return true;
+        }
+        catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    /**
+     * Passes the failed record to the failure handler.
+     *
+     * @param record Record.
+     * @param err Failure cause.
+     * @return {@code True} if the handler has taken the record.
+     */
+    private boolean onRecordFailure(ConsumerRecord<?, ?> record, Throwable err) {
+        metrics.onRecordFailure();
+
+        try {
+            return failureHnd.onFailure(record, err);
+        }
+        catch (Exception e) {
+            U.error(log, "Record failure handler failed [record=" + record + ']', e);
+
+            return false;
+        }
+    }
+
     /** Polling task. */
     class ConsumerTask implements Callable<Void> {
         /** Kafka consumer. */
-        private final KafkaConsumer<?, ?> consumer;
+        private final Consumer<?, ?> consumer;
+
+        /**
+         * Batches which are not completed yet in the order of polling. Tracked in batch mode, where they are removed
+         * once their offsets are committed, and in pipelined mode, where they are removed once ingested.
+         */
+        private final Deque<Batch> pending = new ArrayDeque<>();
+
+        /** Offsets commit callback. */
+        private final OffsetCommitCallback commitCb = (offsets, e) -> {
+            if (e != null)
+                U.warn(log, "Failed to commit consumer offsets [offsets=" + offsets + ", err=" + e + ']');
+        };
+
+        /** Poll controller in adaptive polling mode, {@code null} otherwise. */
+        private final AdaptivePollController pollCtrl;
+
+        /** Queue of the ingest worker of the consumer in pipelined mode, {@code null} otherwise. */
+        private final BlockingQueue<Batch> pipelineQueue;
+
+        /** Polls accumulated into the next batch in adaptive polling mode. */
+        private final List<ConsumerRecords<?, ?>> accumulated = new ArrayList<>();
+
+        /** Number of accumulated records. */
+        private int accumulatedCnt;
+
+        /** Time of the first accumulated poll. */
+        private long accumulateStartTime;
+
+        /** Time of the last lag metrics update. */
+        private long lagUpdateTime;
+
+        /** Rewound partitions paused until the backoff elapses. */
+        private final Set<TopicPartition> backoffParts = new HashSet<>();
+
+        /** Time the rewound partitions are resumed at. */
+        private long backoffEndTime;
+
+        /** Number of rewinds since the last committed batch, which increases the backoff. */
+        private int rewinds;
 
         /** Stopped. */
         private volatile boolean stopped;
 
-        /** Constructor. */
-        public ConsumerTask(Properties consumerCfg) {
-            this.consumer = new KafkaConsumer<>(consumerCfg);
+        /**
+         * @param consumerCfg Consumer config.
+         * @param pipelineQueue Queue of the ingest worker of the consumer in pipelined mode, {@code null} otherwise.
+         */
+        public ConsumerTask(Properties consumerCfg, BlockingQueue<Batch> pipelineQueue) {
+            this.consumer = createConsumer(consumerCfg);
+            this.pipelineQueue = pipelineQueue;
+
+            pollCtrl = adaptivePolling ? new AdaptivePollController(adaptiveMinBatchSize, adaptiveMaxBatchSize,
+                adaptiveMinTimeout, adaptiveMaxTimeout, adaptiveLatencyThreshold) : null;
         }
 
         /** {@inheritDoc} */
         @Override public Void call() {
-            consumer.subscribe(topics);
+            consumer.subscribe(topics, new RebalanceListener(this));
 
             try {
                 while (!stopped) {
-                    for (ConsumerRecord record : consumer.poll(timeout)) {
-                        try {
-                            addMessage(record);
-                        }
-                        catch (Exception e) {
-                            U.error(log, "Record is ignored due to an error [record = " + record + ']', e);
-                        }
+                    resumeAfterBackoff();
+
+                    ConsumerRecords<?, ?> records = consumer.poll(pollCtrl != null ? pollCtrl.timeout() : timeout);
+
+                    if (!records.isEmpty())
+                        metrics.onPoll(records.count());
+
+                    if (pollCtrl != null)
+                        accumulate(records);
+                    else if (!records.isEmpty())
+                        handOver(new Batch(records));
+
+                    if (pipelineQueue != null)
+                        applyBackPressure();
+
+                    if (batchMode)
+                        commitCompleted(false, null);
+                    else {
+                        while (!pending.isEmpty() && pending.peek().isDone())
+                            pending.poll();
                     }
+
+                    updateLags();
                 }
             }
             catch (WakeupException we) {
                 if (log.isInfoEnabled())
                     log.info("Consumer is being stopped.");
             }
+            catch (InterruptedException ie) {
+                if (log.isInfoEnabled())
+                    log.info("Consumer is interrupted.");
+            }
             catch (KafkaException ke) {
                 log.error("Kafka error", ke);
             }
             finally {
-                consumer.close();
+                try {
+                    if (!pending.isEmpty() || !accumulated.isEmpty())
+                        flushPending(null);
+                }
+                catch (Exception e) {
+                    U.error(log, "Failed to commit offsets of streamed batches on consumer stop.", e);
+                }
+                finally {
+                    consumer.close();
+                }
             }
 
             return null;
         }
 
+        /**
+         * Submits accumulated records, waits for the pending batches to be handed over to the data streamer, flushes it
+         * and commits offsets of the batches in batch mode.
+         *
+         * @param revoked Partitions being revoked, {@code null} if the consumer is being stopped.
+         * @throws IgniteCheckedException If failed to wait for a batch.
+         * @throws InterruptedException If interrupted while waiting for the pipeline queue.
+         */
+        private void flushPending(Collection<TopicPartition> revoked)
+            throws IgniteCheckedException, InterruptedException {
+            if (!accumulated.isEmpty())
+                submitAccumulated();
+
+            for (Batch batch : pending) {
+                try {
+                    batch.submitFut.get();
+                }
+                catch (IgniteInterruptedCheckedException e) {
+                    throw e;
+                }
+                catch (IgniteCheckedException ignored) {
+                    // Failed batches are handled when their offsets are committed.
+                }
+            }
+
+            getStreamer().flush();
+
+            if (batchMode)
+                commitCompleted(true, revoked);
+            else
+                pending.clear();
+        }
+
+        /**
+         * Discards the pending batches of the revoked partitions, if they fail to be flushed before revocation, so
+         * that their offsets are not committed once the partitions are owned by other consumers. Their records are
+         * consumed again by the new owners.
+         *
+         * @param parts Revoked partitions.
+         */
+        private void discardPending(Collection<TopicPartition> parts) {
+            pending.removeIf(batch -> batch.revoke(parts));
+        }
+
+        /**
+         * Hands the batch over to the data streamer, directly or through the pipeline queue.
+         *
+         * @param batch Batch.
+         * @throws InterruptedException If interrupted while waiting for the pipeline queue.
+         */
+        private void handOver(Batch batch) throws InterruptedException {
+            if (batchMode || pipelineQueue != null)
+                pending.add(batch);
+
+            if (pipelineQueue != null)
+                pipelineQueue.put(batch);
+            else
+                ingest(batch);
+        }
+
+        /**
+         * Accumulates polled records in adaptive polling mode. Accumulated records are submitted as a single batch
+         * once the batch size is reached, when a poll returns no records or when the maximal timeout elapses.
+         *
+         * @param records Polled records.
+         * @throws InterruptedException If interrupted while waiting for the pipeline queue.
+         */
+        private void accumulate(ConsumerRecords<?, ?> records) throws InterruptedException {
+            pollCtrl.onPoll(records.count());
+
+            long now = U.currentTimeMillis();
+
+            if (!records.isEmpty()) {
+                if (accumulated.isEmpty())
+                    accumulateStartTime = now;
+
+                accumulated.add(records);
+
+                accumulatedCnt += records.count();
+            }
+
+            if (!accumulated.isEmpty() && (records.isEmpty() || accumulatedCnt >= pollCtrl.batchSize() ||
+                now - accumulateStartTime >= pollCtrl.maxTimeout()))
+                submitAccumulated();
+        }
+
+        /**
+         * Submits accumulated records as a single batch.
+         *
+         * @throws InterruptedException If interrupted while waiting for the pipeline queue.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void submitAccumulated() throws InterruptedException {
+            ConsumerRecords<?, ?> records;
+
+            if (accumulated.size() == 1)
+                records = accumulated.get(0);
+            else {
+                Map<TopicPartition, List<ConsumerRecord<Object, Object>>> parts = new HashMap<>();
+
+                for (ConsumerRecords<?, ?> polled : accumulated) {
+                    for (TopicPartition part : polled.partitions())
+                        parts.computeIfAbsent(part, p -> new ArrayList<>()).addAll((List)polled.records(part));
+                }
+
+                records = new ConsumerRecords<>(parts);
+            }
+
+            accumulated.clear();
+            accumulatedCnt = 0;
+
+            Batch batch = new Batch(records);
+
+            batch.pollCtrl = pollCtrl;
+
+            handOver(batch);
+        }
+
+        /** Updates consumer lag metrics if the update frequency has elapsed. */
+        private void updateLags() {
+            long now = U.currentTimeMillis();
+
+            if (now - lagUpdateTime < LAG_UPDATE_FREQ)
+                return;
+
+            lagUpdateTime = now;
+
+            metrics.updateLags(consumer);
+        }
+
+        /**
+         * Pauses the assigned partitions if the pipeline queue has reached its high watermark, and resumes them
+         * once the queue is drained down to the low watermark.
+         */
+        private void applyBackPressure() {
+            int size = pipelineQueue.size();
+
+            if (size >= pipelineHighWatermark) {
+                Set<TopicPartition> assigned = consumer.assignment();
+
+                if (!consumer.paused().containsAll(assigned)) {
+                    consumer.pause(assigned);
+
+                    metrics.onPipelinePause();
+                }
+            }
+            else if (size <= pipelineLowWatermark && !consumer.paused().isEmpty()) {
+                Set<TopicPartition> paused = new HashSet<>(consumer.paused());
+
+                // Rewound partitions are resumed once the backoff elapses.
+                paused.removeAll(backoffParts);
+
+                consumer.resume(paused);
+            }
+        }
+
+        /**
+         * Pauses the rewound partitions for the retry delay, so that a failing data streamer is not flooded with
+         * the same records, while the other partitions are polled.
+         *
+         * @param parts Rewound partitions.
+         * @param attempt Number of the failed attempt starting from {@code 0}.
+         */
+        private void backOff(Collection<TopicPartition> parts, int attempt) {
+            consumer.pause(parts);
+
+            backoffParts.addAll(parts);
+
+            backoffEndTime = U.currentTimeMillis() + retryDelay(attempt);
+        }
+
+        /** Resumes the rewound partitions once the backoff elapses. */
+        private void resumeAfterBackoff() {
+            if (backoffParts.isEmpty() || U.currentTimeMillis() < backoffEndTime)
+                return;
+
+            backoffParts.retainAll(consumer.assignment());
+
+            consumer.resume(backoffParts);
+
+            backoffParts.clear();
+        }
+
+        /**
+         * Commits offsets of the batches which are completed by the data streamer. Offsets are committed in the
+         * order of polling, so the commit stops at the first incomplete batch.
+         *
+         * @param drain Whether all pending batches must be committed, e.g. when the consumer is being stopped or its
+         *      partitions are revoked. If {@code true}, waits for all pending batches without retrying the failed ones
+         *      and commits synchronously.
+         * @param revoked Partitions being revoked when drained, {@code null} if none.
+         * @throws InterruptedException If interrupted while waiting for the pipeline queue.
+         */
+        private void commitCompleted(boolean drain, Collection<TopicPartition> revoked) throws InterruptedException {
+            Map<TopicPartition, OffsetAndMetadata> offsets = null;
+
+            while (!pending.isEmpty() && (drain || pending.peek().isDone())) {
+                Batch batch = pending.peek();
+
+                try {
+                    batch.await();
+                }
+                catch (Exception e) {
+                    if (!drain && batch.attempts < retries) {
+                        // Batches are retried in place to keep offsets committed in the order of polling.
+                        retry(batch);
+
+                        break;
+                    }
+
+                    metrics.onBatchFailure();
+
+                    boolean taken = true;
+
+                    for (ConsumerRecord record : batch.records) {
+                        if (!batch.isExtractFailed(record))
+                            taken &= onRecordFailure(record, e);
+                    }
+
+                    // Offsets are not committed past the failed batch, so that its records are consumed again.
+                    if (!taken) {
+                        rewind(drain, revoked, batch.attempts);
+
+                        break;
+                    }
+                }
+
+                pending.poll();
+
+                rewinds = 0;
+
+                if (offsets == null)
+                    offsets = new HashMap<>();
+
+                offsets.putAll(batch.offsets());
+            }
+
+            if (offsets == null)
+                return;
+
+            if (drain)
+                commitSync(offsets);
+            else
+                consumer.commitAsync(offsets, commitCb);
+        }
+
+        /**
+         * Commits offsets synchronously.
+         *
+         * @param offsets Offsets.
+         */
+        private void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+            try {
+                consumer.commitSync(offsets);
+            }
+            catch (WakeupException ignored) {
+                // The consumer is woken up by stop(), the wakeup is consumed by the exception.
+                consumer.commitSync(offsets);
+            }
+        }
+
+        /**
+         * Discards the pending batches starting from the failed one, whose records are not taken by the failure
+         * handler, together with the accumulated records, and rewinds the consumer to their first records. The
+         * records of the revoked partitions are not rewound, as they are consumed again by the next owner of the
+         * partitions.
+         *
+         * @param drain Whether the pending batches are drained.
+         * @param revoked Partitions being revoked, {@code null} if none.
+         * @param attempts Number of retries of the failed batch.
+         */
+        private void rewind(boolean drain, Collection<TopicPartition> revoked, int attempts) {
+            Map<TopicPartition, Long> positions = new HashMap<>();
+
+            for (Batch batch : pending) {
+                for (TopicPartition part : batch.records.partitions())
+                    positions.merge(part, batch.records.records(part).get(0).offset(), Math::min);
+            }
+
+            // Accumulated records follow the discarded ones, or are the first not streamed records of their partitions.
+            for (ConsumerRecords<?, ?> polled : accumulated) {
+                for (TopicPartition part : polled.partitions())
+                    positions.merge(part, polled.records(part).get(0).offset(), Math::min);
+            }
+
+            pending.clear();
+            accumulated.clear();
+            accumulatedCnt = 0;
+
+            Set<TopicPartition> assigned = consumer.assignment();
+
+            Set<TopicPartition> rewound = new HashSet<>();
+
+            for (Map.Entry<TopicPartition, Long> e : positions.entrySet()) {
+                if (assigned.contains(e.getKey()) && (revoked == null || !revoked.contains(e.getKey()))) {
+                    consumer.seek(e.getKey(), e.getValue());
+
+                    rewound.add(e.getKey());
+                }
+            }
+
+            U.warn(log, "Batch failed to be streamed is consumed again [positions=" + positions + ']');
+
+            if (!drain)
+                backOff(rewound, attempts + rewinds++);
+        }
+
+        /**
+         * Resubmits the failed batch to the data streamer once its retry delay has elapsed, through the pipeline queue
+         * in pipelined mode.
+         *
+         * @param batch Failed batch.
+         * @throws InterruptedException If interrupted while waiting for the pipeline queue.
+         */
+        private void retry(Batch batch) throws InterruptedException {
+            long now = U.currentTimeMillis();
+
+            if (batch.retryTime == 0)
+                batch.retryTime = now + retryDelay(batch.attempts);
+
+            if (now < batch.retryTime)
+                return;
+
+            batch.attempts++;
+            batch.retryTime = 0;
+            batch.submitFut = new GridFutureAdapter<>();
+
+            if (pipelineQueue != null)
+                pipelineQueue.put(batch);
+            else
+                submit(batch);
+        }
+
         /** Stops the polling task. */
         public void stop() {
             stopped = true;
@@ -202,4 +1338,211 @@ public class KafkaStreamer<K, V> extends StreamAdapter<ConsumerRecord, K, V> {
                 consumer.wakeup();
         }
     }
+
+    /** Rebalance listener flushing streamed data and committing its offsets before partitions are revoked. */
+    private class RebalanceListener implements ConsumerRebalanceListener {
+        /** Task of the consumer. */
+        private final ConsumerTask task;
+
+        /**
+         * @param task Task of the consumer.
+         */
+        RebalanceListener(ConsumerTask task) {
+            this.task = task;
+        }
+
+        /** {@inheritDoc} */
+        @Override public void onPartitionsRevoked(Collection<TopicPartition> parts) {
+            metrics.removeLags(parts);
+
+            try {
+                task.flushPending(parts);
+
+                // Positions of the streamed records are committed in non-batch mode, as no records are pending.
+                if (autoCommit)
+                    task.consumer.commitSync();
+            }
+            catch (WakeupException e) {
+                task.discardPending(parts);
+
+                throw e;
+            }
+            catch (Exception e) {
+                task.discardPending(parts);
+
+                U.error(log, "Failed to flush streamed data before partitions revocation [parts=" + parts + ']', e);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override public void onPartitionsAssigned(Collection<TopicPartition> parts) {
+            // No-op.
+        }
+    }
+
+    /** Ingest task draining its pipeline queue. */
+    class IngestTask implements Callable<Void> {
+        /** Queue of polled batches waiting for the worker. */
+        private final BlockingQueue<Batch> queue;
+
+        /** Stopped. */
+        private volatile boolean stopped;
+
+        /**
+         * @param queueCap Capacity of the queue.
+         */
+        IngestTask(int queueCap) {
+            queue = new ArrayBlockingQueue<>(queueCap);
+        }
+
+        /** {@inheritDoc} */
+        @Override public Void call() {
+            try {
+                while (!stopped || !queue.isEmpty()) {
+                    Batch batch = queue.poll(timeout, TimeUnit.MILLISECONDS);
+
+                    // Retried batches are extracted already.
+                    if (batch != null && batch.entries != null)
+                        submit(batch);
+                    else if (batch != null)
+                        ingest(batch);
+                }
+            }
+            catch (InterruptedException ie) {
+                if (log.isInfoEnabled())
+                    log.info("Ingest worker is interrupted.");
+            }
+
+            return null;
+        }
+
+        /** Stops the ingest task. */
+        public void stop() {
+            stopped = true;
+        }
+    }
+
+    /** Batch of polled records. */
+    private class Batch {
+        /** Polled records. */
+        private final ConsumerRecords<?, ?> records;
+
+        /** Entries extracted from the records in batch mode. */
+        private Map<K, V> entries;
+
+        /** Records failed to be extracted in batch mode, {@code null} if there are none. */
+        private Set<ConsumerRecord> extractFailed;
+
+        /** Poll controller to report {@code addData} latency to in adaptive polling mode. */
+        private AdaptivePollController pollCtrl;
+
+        /** Revoked partitions whose offsets are not committed, {@code null} if there are none. */
+        private Set<TopicPartition> revoked;
+
+        /** Number of retries. */
+        private int attempts;
+
+        /** Time of the next retry, {@code 0} if the retry is not scheduled. */
+        private long retryTime;
+
+        /**
+         * Future completed when the records are handed over to the data streamer. Its result is the data streamer
+         * futures in batch mode, or {@code null} if there is nothing to wait for. Replaced on retry.
+         */
+        private GridFutureAdapter<Collection<IgniteFuture<?>>> submitFut = new GridFutureAdapter<>();
+
+        /**
+         * @param records Polled records.
+         */
+        Batch(ConsumerRecords<?, ?> records) {
+            this.records = records;
+        }
+
+        /**
+         * @param record Record failed to be extracted.
+         */
+        void onExtractFailure(ConsumerRecord record) {
+            if (extractFailed == null)
+                extractFailed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            extractFailed.add(record);
+        }
+
+        /**
+         * @param record Record.
+         * @return {@code True} if the record failed to be extracted.
+         */
+        boolean isExtractFailed(ConsumerRecord record) {
+            return extractFailed != null && extractFailed.contains(record);
+        }
+
+        /**
+         * Excludes the revoked partitions from the offsets committed when the batch is completed.
+         *
+         * @param parts Revoked partitions.
+         * @return {@code True} if all partitions of the batch are revoked.
+         */
+        boolean revoke(Collection<TopicPartition> parts) {
+            if (revoked == null)
+                revoked = new HashSet<>();
+
+            for (TopicPartition part : records.partitions()) {
+                if (parts.contains(part))
+                    revoked.add(part);
+            }
+
+            return revoked.size() == records.partitions().size();
+        }
+
+        /**
+         * @return Offsets to commit when the batch is completed.
+         */
+        Map<TopicPartition, OffsetAndMetadata> offsets() {
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(U.capacity(records.partitions().size()));
+
+            for (TopicPartition part : records.partitions()) {
+                if (revoked != null && revoked.contains(part))
+                    continue;
+
+                List<? extends ConsumerRecord<?, ?>> partRecords = records.records(part);
+
+                offsets.put(part, new OffsetAndMetadata(partRecords.get(partRecords.size() - 1).offset() + 1));
+            }
+
+            return offsets;
+        }
+
+        /**
+         * @return {@code True} if the batch is completed.
+         */
+        boolean isDone() {
+            if (!submitFut.isDone())
+                return false;
+
+            Collection<IgniteFuture<?>> futs = submitFut.result();
+
+            if (futs != null) {
+                for (IgniteFuture<?> fut : futs) {
+                    if (!fut.isDone())
+                        return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Waits for the batch to be completed.
+         *
+         * @throws IgniteCheckedException If the batch failed.
+         */
+        void await() throws IgniteCheckedException {
+            Collection<IgniteFuture<?>> futs = submitFut.get();
+
+            if (futs != null) {
+                for (IgniteFuture<?> fut : futs)
+                    fut.get();
+            }
+        }
+    }
 }
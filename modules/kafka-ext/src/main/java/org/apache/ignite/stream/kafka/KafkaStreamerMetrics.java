@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.ignite.internal.IgniteEx;
+import org.apache.ignite.internal.processors.metric.GridMetricManager;
+import org.apache.ignite.internal.processors.metric.MetricRegistry;
+import org.apache.ignite.internal.processors.metric.impl.HistogramMetricImpl;
+import org.apache.ignite.internal.processors.metric.impl.HitRateMetric;
+import org.apache.ignite.internal.processors.metric.impl.LongAdderMetric;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+
+import static org.apache.ignite.internal.processors.metric.impl.MetricUtils.metricName;
+
+/**
+ * Metrics of {@link KafkaStreamer} registered in the Ignite metric registry, and hence exported by the configured
+ * metric exporters (e.g. JMX).
+ */
+class KafkaStreamerMetrics {
+    /** Prefix of streamer metric registry names. */
+    static final String KAFKA_STREAMER_METRICS = metricName("kafka", "streamer");
+
+    /** Latency histogram bounds in microseconds. */
+    private static final long[] LATENCY_BOUNDS = new long[] {10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    /** Rate time interval in milliseconds. */
+    private static final long RATE_TIME_INTERVAL = 60_000;
+
+    /** Kafka consumer metric of the partition lag. */
+    private static final String RECORDS_LAG = "records-lag";
+
+    /** Metric manager. */
+    private final GridMetricManager mmgr;
+
+    /** Registry name. */
+    private final String regName;
+
+    /** Registry. */
+    private final MetricRegistry reg;
+
+    /** Number of consumed records. */
+    private final LongAdderMetric recordsIn;
+
+    /** Rate of consumed records. */
+    private final HitRateMetric recordsInRate;
+
+    /** Number of polled non-empty batches. */
+    private final LongAdderMetric batchesIn;
+
+    /** Number of records failed to be streamed. */
+    private final LongAdderMetric failedRecords;
+
+    /** Number of batches failed to be streamed. */
+    private final LongAdderMetric failedBatches;
+
+    /** Number of pauses of consumers due to the full pipeline queue. */
+    private final LongAdderMetric pipelinePauses;
+
+    /** Extraction latency. */
+    private final HistogramMetricImpl extractTime;
+
+    /** Data streamer {@code addData} latency. */
+    private final HistogramMetricImpl addDataTime;
+
+    /** Lag of the consumed partitions. */
+    private final ConcurrentMap<TopicPartition, Long> lags = new ConcurrentHashMap<>();
+
+    /**
+     * @param ignite Ignite instance.
+     * @param name Streamer name.
+     */
+    KafkaStreamerMetrics(IgniteEx ignite, String name) {
+        mmgr = ignite.context().metric();
+
+        regName = metricName(KAFKA_STREAMER_METRICS, name);
+
+        reg = mmgr.registry(regName);
+
+        recordsIn = reg.longAdderMetric("RecordsIn", "Number of consumed records.");
+
+        recordsInRate = reg.hitRateMetric("RecordsInRate", "Number of records consumed during the last minute.",
+            RATE_TIME_INTERVAL, 60);
+
+        batchesIn = reg.longAdderMetric("BatchesIn", "Number of polled non-empty batches.");
+
+        failedRecords = reg.longAdderMetric("FailedRecords", "Number of records failed to be streamed.");
+
+        failedBatches = reg.longAdderMetric("FailedBatches", "Number of batches failed to be streamed.");
+
+        pipelinePauses = reg.longAdderMetric("PipelinePauses",
+            "Number of pauses of consumers due to the full pipeline queue in pipelined mode.");
+
+        extractTime = reg.histogram("ExtractTime", LATENCY_BOUNDS,
+            "Time of extracting cache entries from a polled batch in microseconds.");
+
+        addDataTime = reg.histogram("AddDataTime", LATENCY_BOUNDS,
+            "Time of adding a batch of entries to the data streamer in microseconds.");
+    }
+
+    /**
+     * @return Registry name.
+     */
+    String registryName() {
+        return regName;
+    }
+
+    /**
+     * Callback for a polled batch.
+     *
+     * @param cnt Number of records.
+     */
+    void onPoll(int cnt) {
+        recordsIn.add(cnt);
+        recordsInRate.add(cnt);
+        batchesIn.increment();
+    }
+
+    /**
+     * Callback for extraction of a batch.
+     *
+     * @param nanos Extraction time in nanoseconds.
+     */
+    void onExtract(long nanos) {
+        extractTime.value(nanos / 1000);
+    }
+
+    /**
+     * Callback for adding a batch to the data streamer.
+     *
+     * @param nanos Time of the call in nanoseconds.
+     */
+    void onAddData(long nanos) {
+        addDataTime.value(nanos / 1000);
+    }
+
+    /** Callback for a record failed to be streamed. */
+    void onRecordFailure() {
+        failedRecords.increment();
+    }
+
+    /** Callback for a batch failed to be streamed. */
+    void onBatchFailure() {
+        failedBatches.increment();
+    }
+
+    /** Callback for a pause of a consumer due to the full pipeline queue. */
+    void onPipelinePause() {
+        pipelinePauses.increment();
+    }
+
+    /**
+     * Updates lag of the partitions consumed by the consumer from its fetch metrics.
+     *
+     * @param consumer Consumer.
+     */
+    void updateLags(Consumer<?, ?> consumer) {
+        for (Map.Entry<MetricName, ? extends Metric> e : consumer.metrics().entrySet()) {
+            MetricName name = e.getKey();
+
+            String topic = name.tags().get("topic");
+            String part = name.tags().get("partition");
+
+            if (!RECORDS_LAG.equals(name.name()) || topic == null || part == null)
+                continue;
+
+            Object val = e.getValue().metricValue();
+
+            if (!(val instanceof Number) || Double.isNaN(((Number)val).doubleValue()))
+                continue;
+
+            TopicPartition tp = new TopicPartition(topic, Integer.parseInt(part));
+
+            if (lags.put(tp, ((Number)val).longValue()) == null) {
+                reg.register(lagMetricName(tp), () -> lags.getOrDefault(tp, 0L),
+                    "Lag of the consumer of the partition in records.");
+            }
+        }
+    }
+
+    /**
+     * Removes lag metrics of the partitions, e.g. when they are revoked from the consumer.
+     *
+     * @param parts Partitions.
+     */
+    void removeLags(Collection<TopicPartition> parts) {
+        for (TopicPartition tp : parts) {
+            if (lags.remove(tp) != null)
+                reg.remove(lagMetricName(tp));
+        }
+    }
+
+    /**
+     * @param tp Partition.
+     * @return Name of the lag metric of the partition.
+     */
+    static String lagMetricName(TopicPartition tp) {
+        // Dots separate metric name parts, so they are replaced the same way Kafka does in its metric names.
+        return metricName("Lag", tp.topic().replace('.', '_'), String.valueOf(tp.partition()));
+    }
+
+    /** Removes the streamer metric registry. */
+    void unregister() {
+        mmgr.remove(regName);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.ignite.IgniteLogger;
+import org.apache.ignite.internal.util.typedef.internal.A;
+import org.apache.ignite.internal.util.typedef.internal.U;
+import org.apache.ignite.resources.LoggerResource;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/**
+ * Record failure handler which drops failed records and logs them with a rate limit: at most one error with a stack
+ * trace is logged per {@link #setLogInterval(long) interval}, together with the number of records dropped silently
+ * since the previous message. This keeps the cost of a bad record constant under bursty failures.
+ * <p>
+ * The handler is called once the configured retries are used up, and takes the records, so that a batch failed to be
+ * streamed in batch mode is skipped instead of being consumed again indefinitely.
+ * <p>
+ * This is the default handler of {@link KafkaStreamer}.
+ */
+public class LoggingRecordFailureHandler implements RecordFailureHandler {
+    /** Default interval between logged errors in milliseconds. */
+    public static final long DFLT_LOG_INTERVAL = 1000;
+
+    /** Logger. */
+    @LoggerResource
+    private IgniteLogger log;
+
+    /** Interval between logged errors in milliseconds. */
+    private long logInterval = DFLT_LOG_INTERVAL;
+
+    /** Time of the last logged error. */
+    private final AtomicLong lastLogTime = new AtomicLong();
+
+    /** Number of records dropped without logging since the last logged error. */
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * Sets the minimal interval between logged errors.
+     *
+     * @param logInterval Interval in milliseconds.
+     */
+    public void setLogInterval(long logInterval) {
+        A.ensure(logInterval >= 0, "logInterval >= 0");
+
+        this.logInterval = logInterval;
+    }
+
+    /** {@inheritDoc} */
+    @Override public boolean onFailure(ConsumerRecord<?, ?> record, Throwable err) {
+        long now = U.currentTimeMillis();
+
+        long last = lastLogTime.get();
+
+        if (log == null || now - last < logInterval || !lastLogTime.compareAndSet(last, now)) {
+            suppressed.incrementAndGet();
+
+            return true;
+        }
+
+        U.error(log, "Record failed to be streamed [record=" + record +
+            ", suppressedSinceLastError=" + suppressed.getAndSet(0) + ']', err);
+
+        return true;
+    }
+}
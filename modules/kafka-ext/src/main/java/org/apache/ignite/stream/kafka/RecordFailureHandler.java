@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/**
+ * Handler of records which {@link KafkaStreamer} failed to stream into the cache, either because cache entries could
+ * not be extracted from a record, or because the data streamer failed to add them after all configured retries.
+ * <p>
+ * The handler is called concurrently from polling and ingest threads, so implementations must be thread-safe.
+ * Handlers implementing {@link org.apache.ignite.lifecycle.LifecycleAware} are started and stopped together with
+ * the streamer. Ignite resources, e.g. {@link org.apache.ignite.resources.LoggerResource}, are injected into
+ * the handler on streamer start.
+ * <p>
+ * In batch mode offsets are committed past a batch failed to be streamed only if the handler has taken all records of
+ * the batch, e.g. sent them to a dead-letter topic. Otherwise the consumer is rewound to the failed batch and its
+ * records are consumed again. Records which cannot be extracted are skipped regardless of the result, as consuming
+ * them again would fail the same way.
+ */
+public interface RecordFailureHandler {
+    /**
+     * Handles a record failed to be streamed.
+     *
+     * @param record Kafka record.
+     * @param err Failure cause.
+     * @return {@code True} if the handler has taken the record, so that its offset can be committed, {@code false} if
+     *      the record must be consumed again in batch mode.
+     */
+    public boolean onFailure(ConsumerRecord<?, ?> record, Throwable err);
+}
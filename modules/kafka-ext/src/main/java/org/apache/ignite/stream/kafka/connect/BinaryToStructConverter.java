@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.apache.ignite.IgniteBinary;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryType;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+
+/**
+ * Converts cache keys and values into Connect data, so that the records of {@link IgniteSourceTask} carry schemas
+ * instead of opaque cache events. Binary objects are converted into {@link Struct}s named after the binary types, and
+ * objects of user classes are converted into binary objects first. Primitives, strings, byte arrays, dates and arrays
+ * of them are mapped to the corresponding Connect types, other values are converted into strings. Nested binary objects
+ * are converted into strings of the type name and the field values sorted by the field names, so that equal objects
+ * are converted into equal strings.
+ * <p>
+ * Struct schemas are cached per binary type and rebuilt when the type gets new fields. The converter is not
+ * thread-safe.
+ */
+class BinaryToStructConverter {
+    /** Maximum number of cached schemas. */
+    private static final int MAX_CACHED_SCHEMAS = 1024;
+
+    /** Optional timestamp schema. */
+    private static final Schema OPTIONAL_TIMESTAMP_SCHEMA = Timestamp.builder().optional().build();
+
+    /** Schemas of the plain values by binary field type name. */
+    private static final Map<String, Schema> PLAIN_SCHEMAS = new HashMap<>();
+
+    static {
+        PLAIN_SCHEMAS.put("byte", Schema.OPTIONAL_INT8_SCHEMA);
+        PLAIN_SCHEMAS.put("short", Schema.OPTIONAL_INT16_SCHEMA);
+        PLAIN_SCHEMAS.put("int", Schema.OPTIONAL_INT32_SCHEMA);
+        PLAIN_SCHEMAS.put("long", Schema.OPTIONAL_INT64_SCHEMA);
+        PLAIN_SCHEMAS.put("float", Schema.OPTIONAL_FLOAT32_SCHEMA);
+        PLAIN_SCHEMAS.put("double", Schema.OPTIONAL_FLOAT64_SCHEMA);
+        PLAIN_SCHEMAS.put("boolean", Schema.OPTIONAL_BOOLEAN_SCHEMA);
+        PLAIN_SCHEMAS.put("String", Schema.OPTIONAL_STRING_SCHEMA);
+        PLAIN_SCHEMAS.put("Date", OPTIONAL_TIMESTAMP_SCHEMA);
+        PLAIN_SCHEMAS.put("Timestamp", OPTIONAL_TIMESTAMP_SCHEMA);
+        PLAIN_SCHEMAS.put("byte[]", Schema.OPTIONAL_BYTES_SCHEMA);
+
+        for (String type : new String[] {"byte", "short", "int", "long", "float", "double", "boolean", "String"})
+            PLAIN_SCHEMAS.put(type + "[]", SchemaBuilder.array(PLAIN_SCHEMAS.get(type)).optional().build());
+    }
+
+    /** Ignite binary. */
+    private final IgniteBinary binary;
+
+    /** Struct mappings by binary type ID. */
+    private final Map<Integer, StructMapping> mappings = new HashMap<>();
+
+    /**
+     * @param binary Ignite binary.
+     */
+    BinaryToStructConverter(IgniteBinary binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Converts a cache key or value.
+     *
+     * @param val Value.
+     * @return Schema and converted value.
+     */
+    SchemaAndValue convert(Object val) {
+        if (val == null)
+            return SchemaAndValue.NULL;
+
+        Schema schema = PLAIN_SCHEMAS.get(typeName(val));
+
+        if (schema != null)
+            return new SchemaAndValue(schema, convert(schema, val));
+
+        if (!(val instanceof BinaryObject)) {
+            try {
+                val = binary.toBinary(val);
+            }
+            catch (BinaryObjectException ignored) {
+                // Converted into a string.
+            }
+        }
+
+        if (val instanceof BinaryObject && !((BinaryObject)val).type().isEnum()) {
+            BinaryObject obj = (BinaryObject)val;
+
+            StructMapping mapping = mapping(obj.type());
+
+            Struct struct = new Struct(mapping.schema);
+
+            for (int i = 0; i < mapping.fields.length; i++) {
+                Object fieldVal = obj.field(mapping.fields[i]);
+
+                if (fieldVal != null)
+                    struct.put(mapping.fields[i], convert(mapping.schemas[i], fieldVal));
+            }
+
+            return new SchemaAndValue(mapping.schema, struct);
+        }
+
+        return new SchemaAndValue(Schema.OPTIONAL_STRING_SCHEMA, string(val));
+    }
+
+    /**
+     * @param schema Schema.
+     * @param val Value.
+     * @return Value of the schema.
+     */
+    private Object convert(Schema schema, Object val) {
+        switch (schema.type()) {
+            case STRING:
+                return string(val);
+
+            case ARRAY: {
+                List<Object> res = new ArrayList<>();
+
+                if (val instanceof Object[]) {
+                    for (Object item : (Object[])val)
+                        res.add(item != null ? convert(schema.valueSchema(), item) : null);
+                }
+                else {
+                    int len = Array.getLength(val);
+
+                    for (int i = 0; i < len; i++)
+                        res.add(Array.get(val, i));
+                }
+
+                return res;
+            }
+
+            default:
+                return val;
+        }
+    }
+
+    /**
+     * @param val Value.
+     * @return String representation of the value.
+     */
+    private static String string(Object val) {
+        if (val instanceof BigDecimal)
+            return ((BigDecimal)val).toPlainString();
+
+        if (val instanceof BinaryObject) {
+            BinaryObject obj = (BinaryObject)val;
+
+            if (obj.type().isEnum())
+                return obj.enumName();
+
+            // Binary object string contains the identity hash code, which differs for equal objects.
+            StringBuilder sb = new StringBuilder(obj.type().typeName()).append(" [");
+
+            Iterator<String> it = new TreeSet<>(obj.type().fieldNames()).iterator();
+
+            while (it.hasNext()) {
+                String field = it.next();
+
+                Object fieldVal = obj.field(field);
+
+                sb.append(field).append('=').append(fieldVal != null ? string(fieldVal) : null);
+
+                if (it.hasNext())
+                    sb.append(", ");
+            }
+
+            return sb.append(']').toString();
+        }
+
+        if (val.getClass().isArray()) {
+            List<String> items = new ArrayList<>();
+
+            for (int i = 0; i < Array.getLength(val); i++) {
+                Object item = Array.get(val, i);
+
+                items.add(item != null ? string(item) : null);
+            }
+
+            return items.toString();
+        }
+
+        if (val instanceof Collection) {
+            List<String> items = new ArrayList<>();
+
+            for (Object item : (Collection<?>)val)
+                items.add(item != null ? string(item) : null);
+
+            return items.toString();
+        }
+
+        if (val instanceof Map) {
+            Map<String, String> entries = new LinkedHashMap<>();
+
+            for (Map.Entry<?, ?> e : ((Map<?, ?>)val).entrySet()) {
+                entries.put(e.getKey() != null ? string(e.getKey()) : null,
+                    e.getValue() != null ? string(e.getValue()) : null);
+            }
+
+            return entries.toString();
+        }
+
+        return val.toString();
+    }
+
+    /**
+     * @param val Plain value.
+     * @return Binary field type name of the value, or {@code null} if the value is not a plain one.
+     */
+    private static String typeName(Object val) {
+        if (val instanceof Byte)
+            return "byte";
+
+        if (val instanceof Short)
+            return "short";
+
+        if (val instanceof Integer)
+            return "int";
+
+        if (val instanceof Long)
+            return "long";
+
+        if (val instanceof Float)
+            return "float";
+
+        if (val instanceof Double)
+            return "double";
+
+        if (val instanceof Boolean)
+            return "boolean";
+
+        if (val instanceof String)
+            return "String";
+
+        if (val instanceof Date)
+            return "Date";
+
+        if (val instanceof byte[])
+            return "byte[]";
+
+        return null;
+    }
+
+    /**
+     * @param type Binary type.
+     * @return Struct mapping.
+     */
+    private StructMapping mapping(BinaryType type) {
+        StructMapping mapping = mappings.get(type.typeId());
+
+        Collection<String> fields = type.fieldNames();
+
+        // Binary types may get new fields.
+        if (mapping == null || mapping.fields.length != fields.size() ||
+            !fields.containsAll(Arrays.asList(mapping.fields))) {
+            if (mappings.size() >= MAX_CACHED_SCHEMAS)
+                mappings.clear();
+
+            mapping = new StructMapping(type, fields);
+
+            mappings.put(type.typeId(), mapping);
+        }
+
+        return mapping;
+    }
+
+    /** Mapping of a binary type to a struct schema. */
+    private static class StructMapping {
+        /** Struct schema. */
+        private final Schema schema;
+
+        /** Field names. */
+        private final String[] fields;
+
+        /** Field schemas. */
+        private final Schema[] schemas;
+
+        /**
+         * @param type Binary type.
+         * @param fieldNames Field names of the type.
+         */
+        StructMapping(BinaryType type, Collection<String> fieldNames) {
+            fields = fieldNames.toArray(new String[0]);
+
+            schemas = new Schema[fields.length];
+
+            SchemaBuilder builder = SchemaBuilder.struct().name(type.typeName()).optional();
+
+            for (int i = 0; i < fields.length; i++) {
+                Schema schema = PLAIN_SCHEMAS.get(type.fieldTypeName(fields[i]));
+
+                schemas[i] = schema != null ? schema : Schema.OPTIONAL_STRING_SCHEMA;
+
+                builder.field(fields[i], schemas[i]);
+            }
+
+            schema = builder.build();
+        }
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.ignite.internal.util.typedef.internal.U;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded event buffer of {@link IgniteSourceTask} with multiple producers and a single consumer. Events are stored
+ * in a preallocated lock-free ring, and the {@link OverflowPolicy} is applied to the events added to the full ring.
+ *
+ * @param <T> Type of the events.
+ */
+class EventBuffer<T extends Serializable> {
+    /** Logger. */
+    private static final Logger log = LoggerFactory.getLogger(EventBuffer.class);
+
+    /** Time to park a producer blocked on the full ring in nanoseconds. */
+    private static final long BLOCK_PARK_NANOS = 100_000;
+
+    /** Policy applied to the events added to the full ring. */
+    enum OverflowPolicy {
+        /**
+         * Blocks the producer until the consumer takes an event. The producers of {@link IgniteSourceTask} are Ignite
+         * threads, which may be detected as blocked critical workers while parked.
+         */
+        BLOCK,
+
+        /** Drops the oldest events. */
+        DROP_OLDEST,
+
+        /** Writes the events to a file until the consumer takes the events of the ring. */
+        SPILL,
+
+        /** Rejects the event, so that the producer stops producing until the buffer is empty. */
+        PAUSE
+    }
+
+    /** Capacity. */
+    private final int cap;
+
+    /** Ring of the events. */
+    private final AtomicReferenceArray<T> items;
+
+    /** Sequences of the ring slots: the slot is free for the position equal to its sequence. */
+    private final AtomicLongArray seqs;
+
+    /** Position of the next event to take. */
+    private final AtomicLong head = new AtomicLong();
+
+    /** Position of the next event to add. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Overflow policy. */
+    private final OverflowPolicy plc;
+
+    /** Spill file of the events, {@code null} if the policy is not {@link OverflowPolicy#SPILL}. */
+    private final SpillFile<T> spill;
+
+    /** Number of events added to the full ring. */
+    private final LongAdder overflows = new LongAdder();
+
+    /** Number of dropped events. */
+    private final LongAdder dropped = new LongAdder();
+
+    /** Number of events written to the spill file. */
+    private final LongAdder spilled = new LongAdder();
+
+    /** Closed flag. */
+    private volatile boolean closed;
+
+    /**
+     * @param cap Capacity.
+     * @param plc Overflow policy.
+     * @param spillDir Directory of the spill file, {@code null} for the temporary directory.
+     */
+    EventBuffer(int cap, OverflowPolicy plc, File spillDir) {
+        if (cap <= 0)
+            throw new IllegalArgumentException("Event buffer capacity must be positive: " + cap);
+
+        this.cap = cap;
+        this.plc = plc;
+
+        items = new AtomicReferenceArray<>(cap);
+        seqs = new AtomicLongArray(cap);
+
+        for (int i = 0; i < cap; i++)
+            seqs.set(i, i);
+
+        spill = plc == OverflowPolicy.SPILL ? new SpillFile<>(spillDir) : null;
+    }
+
+    /**
+     * Adds the event applying the overflow policy if the ring is full.
+     *
+     * @param item Event.
+     * @return {@code False} if the event is rejected by the {@link OverflowPolicy#PAUSE} policy or the buffer is
+     *      closed, {@code true} otherwise.
+     */
+    boolean add(T item) {
+        // Keeps the order of the events while the spilled ones are not taken.
+        if (spill != null && appendToSpill(item, true))
+            return true;
+
+        if (offer(item))
+            return true;
+
+        overflows.increment();
+
+        switch (plc) {
+            case BLOCK:
+                while (!offer(item)) {
+                    if (closed) {
+                        dropped.increment();
+
+                        return false;
+                    }
+
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+
+                return true;
+
+            case DROP_OLDEST:
+                while (!offer(item)) {
+                    if (poll0() != null)
+                        dropped.increment();
+                }
+
+                return true;
+
+            case SPILL:
+                return appendToSpill(item, false);
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Takes the event.
+     *
+     * @return Oldest event, or {@code null} if the buffer is empty.
+     */
+    T poll() {
+        T item = poll0();
+
+        if (item == null && spill != null) {
+            try {
+                item = spill.poll();
+            }
+            catch (IOException | ClassNotFoundException e) {
+                log.error("Failed to read the spilled events, the spilled events are dropped.", e);
+
+                dropped.add(spill.reset());
+            }
+        }
+
+        return item;
+    }
+
+    /**
+     * Takes the events.
+     *
+     * @param c Collection to add the events to.
+     * @param max Maximum number of events to take.
+     * @return Number of taken events.
+     */
+    int drainTo(Collection<? super T> c, int max) {
+        int cnt = 0;
+
+        while (cnt < max) {
+            T item = poll();
+
+            if (item == null)
+                break;
+
+            c.add(item);
+
+            cnt++;
+        }
+
+        return cnt;
+    }
+
+    /**
+     * @return Number of events in the buffer including the spilled ones.
+     */
+    long size() {
+        return Math.max(0, tail.get() - head.get()) + (spill != null ? spill.size() : 0);
+    }
+
+    /**
+     * @return Capacity.
+     */
+    int capacity() {
+        return cap;
+    }
+
+    /**
+     * @return Number of events added to the full ring.
+     */
+    long overflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * @return Number of dropped events.
+     */
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return Number of events written to the spill file.
+     */
+    long spilled() {
+        return spilled.sum();
+    }
+
+    /** Closes the buffer unblocking the producers and deleting the spill file. */
+    void close() {
+        closed = true;
+
+        if (spill != null)
+            spill.reset();
+    }
+
+    /**
+     * Adds the event to the ring.
+     *
+     * @param item Event.
+     * @return {@code False} if the ring is full.
+     */
+    private boolean offer(T item) {
+        long pos = tail.get();
+
+        while (true) {
+            int idx = (int)(pos % cap);
+
+            long dif = seqs.get(idx) - pos;
+
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1))
+                    break;
+
+                pos = tail.get();
+            }
+            else if (dif < 0)
+                return false;
+            else
+                pos = tail.get();
+        }
+
+        int idx = (int)(pos % cap);
+
+        items.set(idx, item);
+        seqs.set(idx, pos + 1);
+
+        return true;
+    }
+
+    /**
+     * Takes the event from the ring. Used by the consumer and by the producers dropping the oldest events.
+     *
+     * @return Oldest event of the ring, or {@code null} if the ring is empty.
+     */
+    private T poll0() {
+        long pos = head.get();
+
+        while (true) {
+            int idx = (int)(pos % cap);
+
+            long dif = seqs.get(idx) - (pos + 1);
+
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1))
+                    break;
+
+                pos = head.get();
+            }
+            else if (dif < 0)
+                return null;
+            else
+                pos = head.get();
+        }
+
+        int idx = (int)(pos % cap);
+
+        T item = items.get(idx);
+
+        items.set(idx, null);
+        seqs.set(idx, pos + cap);
+
+        return item;
+    }
+
+    /**
+     * Writes the event to the spill file.
+     *
+     * @param item Event.
+     * @param ifActive Whether to write the event only if the spill file has events not taken yet.
+     * @return Whether the event is written or dropped on failure.
+     */
+    private boolean appendToSpill(T item, boolean ifActive) {
+        try {
+            if (!spill.append(item, ifActive))
+                return false;
+
+            spilled.increment();
+
+            return true;
+        }
+        catch (IOException e) {
+            log.error("Failed to spill the event, the event is dropped.", e);
+
+            dropped.increment();
+
+            return true;
+        }
+    }
+
+    /**
+     * File the events are written to and read from in the order of writing. The file is deleted once all the events
+     * are read.
+     */
+    private static class SpillFile<T extends Serializable> {
+        /** Directory of the file, {@code null} for the temporary directory. */
+        private final File dir;
+
+        /** File, {@code null} if there are no events written. */
+        private File file;
+
+        /** Output stream. */
+        private ObjectOutputStream out;
+
+        /** Input stream. */
+        private ObjectInputStream in;
+
+        /** Number of written events. */
+        private long written;
+
+        /** Number of read events. */
+        private long read;
+
+        /**
+         * @param dir Directory of the file, {@code null} for the temporary directory.
+         */
+        SpillFile(File dir) {
+            this.dir = dir;
+        }
+
+        /**
+         * @param item Event.
+         * @param ifActive Whether to write the event only if the file has events not read yet.
+         * @return Whether the event is written.
+         * @throws IOException If failed.
+         */
+        synchronized boolean append(T item, boolean ifActive) throws IOException {
+            if (ifActive && written == read)
+                return false;
+
+            if (out == null) {
+                file = File.createTempFile("ignite-source-events-", ".spill", dir);
+
+                file.deleteOnExit();
+
+                out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            }
+
+            out.writeObject(item);
+
+            // Events are not referenced by the next ones.
+            out.reset();
+            out.flush();
+
+            written++;
+
+            return true;
+        }
+
+        /**
+         * @return Oldest event, or {@code null} if there are no events not read yet.
+         * @throws IOException If failed.
+         * @throws ClassNotFoundException If failed.
+         */
+        @SuppressWarnings("unchecked")
+        synchronized T poll() throws IOException, ClassNotFoundException {
+            if (read == written)
+                return null;
+
+            if (in == null)
+                in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            T item = (T)in.readObject();
+
+            if (++read == written)
+                reset();
+
+            return item;
+        }
+
+        /**
+         * @return Number of events not read yet.
+         */
+        synchronized long size() {
+            return written - read;
+        }
+
+        /**
+         * Deletes the file.
+         *
+         * @return Number of events not read.
+         */
+        synchronized long reset() {
+            long size = written - read;
+
+            U.closeQuiet(in);
+            U.closeQuiet(out);
+
+            if (file != null && !file.delete())
+                log.warn("Failed to delete the spill file: " + file);
+
+            file = null;
+            in = null;
+            out = null;
+            written = 0;
+            read = 0;
+
+            return size;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.Ignition;
+
+/**
+ * Registry of Ignite nodes shared by the tasks running in a Connect worker. A node is started from its configuration
+ * file when the first task acquires it, and stopped when the last task releases it.
+ */
+final class IgniteNodeRegistry {
+    /** Nodes by configuration file path. */
+    private static final Map<String, NodeRef> NODES = new HashMap<>();
+
+    /** Constructor. */
+    private IgniteNodeRegistry() {
+        // No-op.
+    }
+
+    /**
+     * Acquires the node started from the configuration file, starting it if needed.
+     *
+     * @param cfgPath Ignite configuration file path.
+     * @return Ignite node.
+     */
+    static synchronized Ignite acquire(String cfgPath) {
+        NodeRef ref = NODES.get(cfgPath);
+
+        if (ref == null) {
+            ref = new NodeRef(Ignition.start(cfgPath));
+
+            NODES.put(cfgPath, ref);
+        }
+
+        ref.refs++;
+
+        return ref.ignite;
+    }
+
+    /**
+     * Releases the node started from the configuration file, stopping it if it is not used anymore.
+     *
+     * @param cfgPath Ignite configuration file path.
+     */
+    static synchronized void release(String cfgPath) {
+        NodeRef ref = NODES.get(cfgPath);
+
+        if (ref == null || --ref.refs > 0)
+            return;
+
+        NODES.remove(cfgPath);
+
+        ref.ignite.close();
+    }
+
+    /** Reference-counted node. */
+    private static class NodeRef {
+        /** Ignite node. */
+        private final Ignite ignite;
+
+        /** Number of tasks using the node. */
+        private int refs;
+
+        /**
+         * @param ignite Ignite node.
+         */
+        NodeRef(Ignite ignite) {
+            this.ignite = ignite;
+        }
+    }
+}
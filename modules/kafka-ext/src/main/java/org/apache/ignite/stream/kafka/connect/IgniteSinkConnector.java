@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.apache.ignite.internal.util.typedef.F;
 import org.apache.ignite.internal.util.typedef.internal.A;
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.utils.AppInfoParser;
@@ -54,7 +55,9 @@ public class IgniteSinkConnector extends SinkConnector {
         try {
             A.notNullOrEmpty(configProps.get(SinkConnector.TOPICS_CONFIG), "topics");
             A.notNullOrEmpty(configProps.get(IgniteSinkConstants.CACHE_NAME), "cache name");
-            A.notNullOrEmpty(configProps.get(IgniteSinkConstants.CACHE_CFG_PATH), "path to cache config file");
+
+            if (F.isEmpty(configProps.get(IgniteSinkConstants.THIN_CLIENT_ADDRESSES)))
+                A.notNullOrEmpty(configProps.get(IgniteSinkConstants.CACHE_CFG_PATH), "path to cache config file");
         }
         catch (IllegalArgumentException e) {
             throw new ConnectException("Cannot start IgniteSinkConnector due to configuration error", e);
@@ -71,19 +74,26 @@ public class IgniteSinkConnector extends SinkConnector {
     }
 
     /**
-     * Builds each config for <tt>maxTasks</tt> tasks.
+     * Builds each config for <tt>maxTasks</tt> tasks. Each task is assigned its index.
+     * <p>
+     * Kafka partitions are assigned to sink tasks by the consumer group of the connector, so records are written to
+     * local primary nodes only if the producers partition the topics consistently with the cache affinity and the
+     * workers run on the Ignite hosts. See {@link IgniteSinkConstants#PRIMARY_LOCALITY_METRICS} to verify the
+     * co-location.
      *
      * @param maxTasks Max number of tasks.
      * @return Task configs.
      */
     @Override public List<Map<String, String>> taskConfigs(int maxTasks) {
         List<Map<String, String>> taskConfigs = new ArrayList<>();
-        Map<String, String> taskProps = new HashMap<>();
 
-        taskProps.putAll(configProps);
+        for (int i = 0; i < maxTasks; i++) {
+            Map<String, String> taskProps = new HashMap<>(configProps);
+
+            taskProps.put(IgniteSinkConstants.TASK_ID, String.valueOf(i));
 
-        for (int i = 0; i < maxTasks; i++)
             taskConfigs.add(taskProps);
+        }
 
         return taskConfigs;
     }
@@ -36,6 +36,96 @@ public class IgniteSinkConstants {
     /** Maximum number of parallel stream operations per node. */
     public static final String CACHE_PER_NODE_PAR_OPS = "cachePerNodeParOps";
 
+    /** Flush frequency of the data streamer in milliseconds, flushed on offsets commit only by default. */
+    public static final String CACHE_AUTO_FLUSH_FREQ = "cacheAutoFlushFrequency";
+
+    /** Size of per-thread buffer of the data streamer. */
+    public static final String CACHE_PER_THREAD_BUFFER_SIZE = "cachePerThreadBufferSize";
+
+    /** Timeout of the data streamer operations in milliseconds. */
+    public static final String CACHE_STREAMER_TIMEOUT = "cacheStreamerTimeout";
+
+    /**
+     * Stream receiver of the data streamer:
+     * <ul>
+     *     <li>{@code transformer} - {@link org.apache.ignite.stream.StreamTransformer} invoking the entry processor
+     *     of {@link #STREAM_RECEIVER_FUNCTION_CLASS} for each entry;</li>
+     *     <li>{@code invokeAll} - {@link InvokeAllStreamReceiver} invoking the entry processor of
+     *     {@link #STREAM_RECEIVER_FUNCTION_CLASS} for a batch of entries at once;</li>
+     *     <li>{@code visitor} - {@link org.apache.ignite.stream.StreamVisitor} calling the closure of
+     *     {@link #STREAM_RECEIVER_FUNCTION_CLASS} for each entry;</li>
+     *     <li>class name of a {@link org.apache.ignite.stream.StreamReceiver} implementation.</li>
+     * </ul>
+     * The default data streamer receiver is used if not set.
+     */
+    public static final String STREAM_RECEIVER = "streamReceiver";
+
+    /**
+     * Class of the {@link org.apache.ignite.cache.CacheEntryProcessor} for the {@code transformer} and
+     * {@code invokeAll} stream receivers, or of the {@link org.apache.ignite.lang.IgniteBiInClosure} accepting the
+     * cache and the entry for the {@code visitor} stream receiver. The streamed value is passed to the entry processor
+     * as the first argument.
+     */
+    public static final String STREAM_RECEIVER_FUNCTION_CLASS = "streamReceiverFunctionCls";
+
     /** Class to transform the entry before feeding into cache. */
     public static final String SINGLE_TUPLE_EXTRACTOR_CLASS = "singleTupleExtractorCls";
+
+    /**
+     * Flag to enable exactly-once mode: offsets of the flushed records are stored in Ignite per connector name, and
+     * the task resumes consumption from them.
+     */
+    public static final String EXACTLY_ONCE = "exactlyOnce";
+
+    /** Name of the cache to store offsets in exactly-once mode. */
+    public static final String OFFSETS_CACHE_NAME = "offsetsCacheName";
+
+    /**
+     * Flag to enable asynchronous flush: instead of flushing the data streamer on offsets commit, the task commits
+     * the offsets of the records completed by the data streamer so far.
+     */
+    public static final String ASYNC_FLUSH = "asyncFlush";
+
+    /**
+     * Flag to de-duplicate keys of the records passed to the task at once: only the last value of a key is streamed.
+     */
+    public static final String DEDUPLICATE_KEYS = "deduplicateKeys";
+
+    /**
+     * Flag to convert record keys and values with {@link org.apache.kafka.connect.data.Struct} schemas into binary
+     * objects. Applies if no extractor is configured.
+     */
+    public static final String STRUCT_TO_BINARY = "structToBinary";
+
+    /** Binary type name of the converted record keys. Key schema name is used by default. */
+    public static final String KEY_TYPE_NAME = "keyTypeName";
+
+    /** Binary type name of the converted record values. Value schema name is used by default. */
+    public static final String VALUE_TYPE_NAME = "valueTypeName";
+
+    /**
+     * Flag to remove the keys of tombstone records (with {@code null} values) from the cache. Tombstones are streamed
+     * as removals if {@link #CACHE_ALLOW_OVERWRITE} is enabled and no {@link #STREAM_RECEIVER} is configured, and
+     * removed with batched {@code removeAll} calls otherwise. Tombstones are always removed in thin client mode.
+     */
+    public static final String CACHE_REMOVE_TOMBSTONES = "cacheRemoveTombstones";
+
+    /**
+     * Comma-separated addresses of the server nodes ({@code host[:port[..port]]}) to write the data with a thin client
+     * instead of starting an Ignite node with {@link #CACHE_CFG_PATH}. The data is written with batched
+     * {@code putAll} calls through partition-aware connections, which overwrite existing values. The task fails to
+     * start if data streamer options are configured, or if {@link #CACHE_ALLOW_OVERWRITE} is disabled.
+     */
+    public static final String THIN_CLIENT_ADDRESSES = "thinClientAddresses";
+
+    /**
+     * Flag to count the records written to the primary nodes residing on the host of the Connect worker, so that
+     * co-location of the Kafka partitions and the Ignite partitions can be verified. The cache key of each record, as
+     * extracted or converted from the record key, is mapped with the cache affinity, so the affinity key of the cache
+     * key type is taken into account. Not supported in thin client mode.
+     */
+    public static final String PRIMARY_LOCALITY_METRICS = "primaryLocalityMetrics";
+
+    /** Index of the task assigned by {@link IgniteSinkConnector}. */
+    public static final String TASK_ID = "taskId";
 }
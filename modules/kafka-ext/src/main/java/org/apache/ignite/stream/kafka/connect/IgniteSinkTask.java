@@ -17,12 +17,41 @@
 
 package org.apache.ignite.stream.kafka.connect;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteBinary;
+import org.apache.ignite.IgniteCache;
 import org.apache.ignite.IgniteDataStreamer;
+import org.apache.ignite.IgniteException;
 import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.CacheEntryProcessor;
+import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.cache.affinity.Affinity;
+import org.apache.ignite.client.ClientCache;
+import org.apache.ignite.client.ClientCacheConfiguration;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.cluster.ClusterGroup;
+import org.apache.ignite.cluster.ClusterNode;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.configuration.ClientConfiguration;
+import org.apache.ignite.internal.util.typedef.internal.U;
+import org.apache.ignite.lang.IgniteBiInClosure;
+import org.apache.ignite.lang.IgniteBiTuple;
+import org.apache.ignite.lang.IgniteFuture;
+import org.apache.ignite.stream.StreamReceiver;
 import org.apache.ignite.stream.StreamSingleTupleExtractor;
+import org.apache.ignite.stream.StreamTransformer;
+import org.apache.ignite.stream.StreamVisitor;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.errors.ConnectException;
@@ -33,22 +62,136 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Task to consume sequences of SinkRecords and write data to grid.
+ * <p>
+ * Each task streams data with its own data streamer, so tasks of different connectors may write to different caches
+ * within one Connect worker. Tasks configured with the same Ignite configuration file share the Ignite node, which is
+ * stopped when the last of them is stopped.
+ * <p>
+ * In exactly-once mode ({@link IgniteSinkConstants#EXACTLY_ONCE}) the offsets of the records flushed to the cache are
+ * stored in the offsets cache by the connector name, the cache name and the partition, so that connectors writing
+ * the same topic into the same cache keep their own offsets. A task assigned a partition resumes consumption from the
+ * stored offset, and skips the records below it, so the records replayed by Connect after a restart are not applied
+ * again.
+ * <p>
+ * In asynchronous flush mode ({@link IgniteSinkConstants#ASYNC_FLUSH}) the task does not block on the data streamer
+ * flush when Connect commits offsets. The futures of the added data are tracked per partition instead, and only the
+ * offsets of the records completed by the data streamer are committed. If the data streamer fails to stream a batch,
+ * the offsets of the following batches are not committed and the task fails on the next {@link #put(Collection)}.
+ * <p>
+ * If {@link IgniteSinkConstants#STRUCT_TO_BINARY} is enabled and no extractor is configured, keys and values with
+ * struct schemas, e.g. produced by the JSON or Avro converters, are stored as binary objects.
+ * <p>
+ * If {@link IgniteSinkConstants#CACHE_REMOVE_TOMBSTONES} is enabled, the keys of tombstone records are removed from
+ * the cache. The data streamer removes them if it may overwrite data with the default receiver. Otherwise, e.g. if a
+ * custom stream receiver is configured, which would get the tombstones as {@code null} values, the tombstones of a
+ * {@link #put(Collection)} call are removed with batched {@code removeAll} calls ordered with the updates of the same
+ * keys, including the updates of the previous calls which are not flushed yet.
+ * <p>
+ * If {@link IgniteSinkConstants#THIN_CLIENT_ADDRESSES} is configured, the task writes the data with a thin client
+ * instead of starting an Ignite node, so that Connect workers start fast and don't join the topology. The entries of a
+ * {@link #put(Collection)} call are written with batched {@code putAll} calls through partition-aware connections.
+ * Existing values are overwritten and the keys of tombstone records are removed. The task fails to start if options
+ * which require an Ignite node, e.g. data streamer options, are configured.
+ * <p>
+ * Metrics of the task are exposed by {@link IgniteSinkTaskMetricsMXBean} registered in the platform MBean server. If
+ * {@link IgniteSinkConstants#PRIMARY_LOCALITY_METRICS} is enabled, the metrics count the records whose cache keys are
+ * mapped to the primary nodes residing on the host of the task.
  */
 public class IgniteSinkTask extends SinkTask {
+    /** Default name of the cache to store offsets in exactly-once mode. */
+    public static final String DFLT_OFFSETS_CACHE_NAME = "ignite-sink-offsets";
+
     /** Logger. */
     private static final Logger log = LoggerFactory.getLogger(IgniteSinkTask.class);
 
+    /** Property of the connector name set by Connect. */
+    private static final String CONNECTOR_NAME = "name";
+
+    /** Options which require an Ignite node, not supported in thin client mode. */
+    private static final List<String> NODE_OPTS = Arrays.asList(
+        IgniteSinkConstants.CACHE_PER_NODE_DATA_SIZE,
+        IgniteSinkConstants.CACHE_PER_NODE_PAR_OPS,
+        IgniteSinkConstants.CACHE_AUTO_FLUSH_FREQ,
+        IgniteSinkConstants.CACHE_PER_THREAD_BUFFER_SIZE,
+        IgniteSinkConstants.CACHE_STREAMER_TIMEOUT,
+        IgniteSinkConstants.STREAM_RECEIVER,
+        IgniteSinkConstants.STREAM_RECEIVER_FUNCTION_CLASS,
+        IgniteSinkConstants.PRIMARY_LOCALITY_METRICS);
+
     /** Flag for stopped state. */
-    private static volatile boolean stopped = true;
+    private volatile boolean stopped = true;
+
+    /** Task metrics. */
+    private final IgniteSinkTaskMetrics metrics = new IgniteSinkTaskMetrics();
 
     /** Ignite grid configuration file. */
-    private static String igniteConfigFile;
+    private String igniteConfigFile;
 
     /** Cache name. */
-    private static String cacheName;
+    private String cacheName;
 
     /** Entry transformer. */
-    private static StreamSingleTupleExtractor<SinkRecord, Object, Object> extractor;
+    private StreamSingleTupleExtractor<SinkRecord, Object, Object> extractor;
+
+    /** Ignite node. */
+    private Ignite ignite;
+
+    /** Data streamer of the task. */
+    private IgniteDataStreamer<Object, Object> streamer;
+
+    /** Thin client in thin client mode, {@code null} otherwise. */
+    private IgniteClient client;
+
+    /** Cache of the thin client in thin client mode, {@code null} otherwise. */
+    private ClientCache<Object, Object> clientCache;
+
+    /** Exactly-once mode flag. */
+    private boolean exactlyOnce;
+
+    /** Prefix of the offset keys in exactly-once mode, made of the connector and cache names. */
+    private String offsetKeyPrefix;
+
+    /** Cache of the offsets in exactly-once mode, {@code null} otherwise or in thin client mode. */
+    private IgniteCache<String, Long> offsetsCache;
+
+    /** Cache of the offsets in exactly-once thin client mode, {@code null} otherwise. */
+    private ClientCache<String, Long> clientOffsetsCache;
+
+    /** Offsets of the next records to apply in exactly-once mode. */
+    private final Map<TopicPartition, Long> appliedOffsets = new HashMap<>();
+
+    /** Converter of the record keys with struct schemas, {@code null} if conversion is disabled. */
+    private StructToBinaryConverter keyConverter;
+
+    /** Converter of the record values with struct schemas, {@code null} if conversion is disabled. */
+    private StructToBinaryConverter valConverter;
+
+    /** Cache to remove tombstones with, {@code null} if tombstones are streamed or in thin client mode. */
+    private IgniteCache<Object, Object> tombstonesCache;
+
+    /**
+     * Keys of the entries which may not be flushed yet, {@code null} if tombstones are streamed. Includes the entries
+     * added by the previous {@link #put(Collection)} calls, which the data streamer may still buffer.
+     */
+    private Set<Object> unflushedKeys;
+
+    /** Flag to de-duplicate keys of the records passed to the task at once. */
+    private boolean deduplicateKeys;
+
+    /** Asynchronous flush flag. */
+    private boolean asyncFlush;
+
+    /** Affinity of the cache, {@code null} if records are not mapped. */
+    private Affinity<Object> aff;
+
+    /** Server nodes residing on the host of the task, {@code null} if records are not mapped. */
+    private ClusterGroup locHostSrvs;
+
+    /** Batches of records not completed by the data streamer yet by partition, in asynchronous flush mode. */
+    private final Map<TopicPartition, Deque<PendingBatch>> pending = new HashMap<>();
+
+    /** Failure of a batch in asynchronous flush mode, rethrown from {@link #put(Collection)} to fail the task. */
+    private ConnectException failure;
 
     /** {@inheritDoc} */
     @Override public String version() {
@@ -61,24 +204,10 @@ public class IgniteSinkTask extends SinkTask {
      * @param props Task properties.
      */
     @Override public void start(Map<String, String> props) {
-        // Each task has the same parameters -- avoid setting more than once.
-        if (cacheName != null)
-            return;
-
         cacheName = props.get(IgniteSinkConstants.CACHE_NAME);
         igniteConfigFile = props.get(IgniteSinkConstants.CACHE_CFG_PATH);
-
-        if (props.containsKey(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE))
-            StreamerContext.getStreamer().allowOverwrite(
-                Boolean.parseBoolean(props.get(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE)));
-
-        if (props.containsKey(IgniteSinkConstants.CACHE_PER_NODE_DATA_SIZE))
-            StreamerContext.getStreamer().perNodeBufferSize(
-                Integer.parseInt(props.get(IgniteSinkConstants.CACHE_PER_NODE_DATA_SIZE)));
-
-        if (props.containsKey(IgniteSinkConstants.CACHE_PER_NODE_PAR_OPS))
-            StreamerContext.getStreamer().perNodeParallelOperations(
-                Integer.parseInt(props.get(IgniteSinkConstants.CACHE_PER_NODE_PAR_OPS)));
+        asyncFlush = Boolean.parseBoolean(props.get(IgniteSinkConstants.ASYNC_FLUSH));
+        deduplicateKeys = Boolean.parseBoolean(props.get(IgniteSinkConstants.DEDUPLICATE_KEYS));
 
         if (props.containsKey(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS)) {
             String transformerCls = props.get(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
@@ -96,31 +225,231 @@ public class IgniteSinkTask extends SinkTask {
             }
         }
 
+        metrics.register(cacheName, props.get(CONNECTOR_NAME), props.get(IgniteSinkConstants.TASK_ID));
+
+        try {
+            String thinClientAddrs = props.get(IgniteSinkConstants.THIN_CLIENT_ADDRESSES);
+
+            if (thinClientAddrs != null && !thinClientAddrs.isEmpty())
+                startClient(props, thinClientAddrs);
+            else
+                startStreamer(props);
+
+            if (tombstonesCache != null || client != null)
+                unflushedKeys = new HashSet<>();
+
+            IgniteBinary binary = client != null ? client.binary() : ignite.binary();
+
+            if (Boolean.parseBoolean(props.get(IgniteSinkConstants.STRUCT_TO_BINARY))) {
+                keyConverter = new StructToBinaryConverter(binary,
+                    props.get(IgniteSinkConstants.KEY_TYPE_NAME), cacheName + ".Key");
+
+                valConverter = new StructToBinaryConverter(binary,
+                    props.get(IgniteSinkConstants.VALUE_TYPE_NAME), cacheName + ".Value");
+            }
+
+            if (Boolean.parseBoolean(props.get(IgniteSinkConstants.EXACTLY_ONCE))) {
+                String connectorName = props.get(CONNECTOR_NAME);
+
+                if (connectorName == null || connectorName.isEmpty())
+                    throw new ConnectException("Connector name is required in exactly-once mode.");
+
+                offsetKeyPrefix = connectorName + ':' + cacheName + ':';
+
+                String offsetsCacheName = props.getOrDefault(IgniteSinkConstants.OFFSETS_CACHE_NAME,
+                    DFLT_OFFSETS_CACHE_NAME);
+
+                if (client != null) {
+                    clientOffsetsCache = client.getOrCreateCache(new ClientCacheConfiguration()
+                        .setName(offsetsCacheName)
+                        .setCacheMode(CacheMode.REPLICATED));
+                }
+                else {
+                    offsetsCache = ignite.getOrCreateCache(new CacheConfiguration<String, Long>(offsetsCacheName)
+                        .setCacheMode(CacheMode.REPLICATED));
+                }
+
+                exactlyOnce = true;
+            }
+        }
+        catch (RuntimeException e) {
+            closeResources();
+
+            throw new ConnectException("Failed to start the sink task [cache=" + cacheName + ']', e);
+        }
+
         stopped = false;
     }
 
     /**
-     * Buffers records.
+     * Starts the data streamer of the Ignite node started with the configuration file.
      *
-     * @param records Records to inject into grid.
+     * @param props Task properties.
+     */
+    private void startStreamer(Map<String, String> props) {
+        ignite = IgniteNodeRegistry.acquire(igniteConfigFile);
+
+        streamer = ignite.dataStreamer(cacheName);
+
+        if (props.containsKey(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE))
+            streamer.allowOverwrite(Boolean.parseBoolean(props.get(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE)));
+
+        if (props.containsKey(IgniteSinkConstants.CACHE_PER_NODE_DATA_SIZE))
+            streamer.perNodeBufferSize(Integer.parseInt(props.get(IgniteSinkConstants.CACHE_PER_NODE_DATA_SIZE)));
+
+        if (props.containsKey(IgniteSinkConstants.CACHE_PER_NODE_PAR_OPS))
+            streamer.perNodeParallelOperations(Integer.parseInt(props.get(IgniteSinkConstants.CACHE_PER_NODE_PAR_OPS)));
+
+        if (props.containsKey(IgniteSinkConstants.CACHE_AUTO_FLUSH_FREQ))
+            streamer.autoFlushFrequency(Long.parseLong(props.get(IgniteSinkConstants.CACHE_AUTO_FLUSH_FREQ)));
+
+        if (props.containsKey(IgniteSinkConstants.CACHE_PER_THREAD_BUFFER_SIZE))
+            streamer.perThreadBufferSize(Integer.parseInt(props.get(IgniteSinkConstants.CACHE_PER_THREAD_BUFFER_SIZE)));
+
+        if (props.containsKey(IgniteSinkConstants.CACHE_STREAMER_TIMEOUT))
+            streamer.timeout(Long.parseLong(props.get(IgniteSinkConstants.CACHE_STREAMER_TIMEOUT)));
+
+        if (props.containsKey(IgniteSinkConstants.STREAM_RECEIVER))
+            streamer.receiver(streamReceiver(props.get(IgniteSinkConstants.STREAM_RECEIVER),
+                props.get(IgniteSinkConstants.STREAM_RECEIVER_FUNCTION_CLASS)));
+
+        // The data streamer removes the keys of the entries with null values only if it may overwrite data, and passes
+        // them to the custom receivers as is.
+        if (Boolean.parseBoolean(props.get(IgniteSinkConstants.CACHE_REMOVE_TOMBSTONES)) &&
+            (!streamer.allowOverwrite() || props.containsKey(IgniteSinkConstants.STREAM_RECEIVER)))
+            tombstonesCache = ignite.cache(cacheName);
+
+        if (Boolean.parseBoolean(props.get(IgniteSinkConstants.PRIMARY_LOCALITY_METRICS))) {
+            aff = ignite.affinity(cacheName);
+
+            locHostSrvs = ignite.cluster().forHost(ignite.cluster().localNode()).forServers();
+        }
+    }
+
+    /**
+     * Starts the thin client.
+     *
+     * @param props Task properties.
+     * @param addrs Comma-separated server node addresses.
+     */
+    private void startClient(Map<String, String> props, String addrs) {
+        for (String opt : NODE_OPTS) {
+            if (props.containsKey(opt))
+                throw new ConnectException("Option is not supported in thin client mode [opt=" + opt + ']');
+        }
+
+        // Values are overwritten and tombstones are removed, as by the data streamer which may overwrite data.
+        if (props.containsKey(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE) &&
+            !Boolean.parseBoolean(props.get(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE)))
+            throw new ConnectException("Disabling overwrite is not supported in thin client mode.");
+
+        client = Ignition.startClient(new ClientConfiguration()
+            .setAddresses(addrs.split(","))
+            .setPartitionAwarenessEnabled(true));
+
+        clientCache = client.cache(cacheName);
+    }
+
+    /**
+     * Creates the configured stream receiver.
+     *
+     * @param type Stream receiver type or class name.
+     * @param fnCls Class name of the entry processor or closure of the stream receiver.
+     * @return Stream receiver.
      */
     @SuppressWarnings("unchecked")
+    private StreamReceiver<Object, Object> streamReceiver(String type, String fnCls) {
+        switch (type) {
+            case "transformer":
+                return StreamTransformer.from(newInstance(fnCls, CacheEntryProcessor.class));
+
+            case "invokeAll":
+                return new InvokeAllStreamReceiver<>(newInstance(fnCls, CacheEntryProcessor.class));
+
+            case "visitor":
+                return StreamVisitor.from(newInstance(fnCls, IgniteBiInClosure.class));
+
+            default:
+                return newInstance(type, StreamReceiver.class);
+        }
+    }
+
+    /**
+     * @param clsName Class name.
+     * @param type Expected type.
+     * @return Instance of the class.
+     * @throws ConnectException If failed to instantiate the class.
+     */
+    private static <T> T newInstance(String clsName, Class<T> type) {
+        if (clsName == null || clsName.isEmpty())
+            throw new ConnectException("Class of " + type.getSimpleName() + " is not configured.");
+
+        try {
+            return type.cast(Class.forName(clsName).newInstance());
+        }
+        catch (Exception e) {
+            throw new ConnectException("Failed to instantiate " + type.getSimpleName() + " [cls=" + clsName + ']', e);
+        }
+    }
+
+    /**
+     * Buffers records. Entries of the records are added to the data streamer at once.
+     *
+     * @param records Records to inject into grid.
+     */
     @Override public void put(Collection<SinkRecord> records) {
+        if (failure != null)
+            throw failure;
+
+        PutBatch batch = new PutBatch(records.size());
+
+        Map<TopicPartition, Long> offsets = asyncFlush ? new HashMap<>() : null;
+
         try {
             for (SinkRecord record : records) {
-                // Data is flushed asynchronously when CACHE_PER_NODE_DATA_SIZE is reached.
-                if (extractor != null) {
-                    Map.Entry<Object, Object> entry = extractor.extract(record);
-                    StreamerContext.getStreamer().addData(entry.getKey(), entry.getValue());
+                metrics.onRecord(record.key(), record.value());
+
+                if (exactlyOnce && isApplied(record)) {
+                    metrics.onSkippedRecord();
+
+                    continue;
                 }
+
+                Map.Entry<Object, Object> entry = null;
+
+                if (extractor != null)
+                    entry = extractor.extract(record);
                 else {
                     if (record.key() != null) {
-                        StreamerContext.getStreamer().addData(record.key(), record.value());
+                        entry = keyConverter == null ? new IgniteBiTuple<>(record.key(), record.value()) :
+                            new IgniteBiTuple<>(keyConverter.convert(record.keySchema(), record.key()),
+                                valConverter.convert(record.valueSchema(), record.value()));
                     }
                     else {
+                        metrics.onNullKeyDrop();
+
                         log.error("Failed to stream a record with null key!");
                     }
                 }
+
+                if (entry != null) {
+                    if (aff != null)
+                        mapToPrimary(entry.getKey());
+
+                    batch.add(entry);
+                }
+
+                if (offsets != null)
+                    offsets.put(new TopicPartition(record.topic(), record.kafkaPartition()), record.kafkaOffset() + 1);
+            }
+
+            List<IgniteFuture<?>> futs = batch.finish();
+
+            if (offsets != null) {
+                for (Map.Entry<TopicPartition, Long> e : offsets.entrySet()) {
+                    pending.computeIfAbsent(e.getKey(), part -> new ArrayDeque<>())
+                        .add(new PendingBatch(e.getValue(), futs));
+                }
             }
         }
         catch (ConnectException e) {
@@ -130,6 +459,18 @@ public class IgniteSinkTask extends SinkTask {
         }
     }
 
+    /**
+     * Maps the cache key to the primary node and counts the records written to the host of the task.
+     *
+     * @param key Cache key, as extracted or converted from the record key.
+     */
+    private void mapToPrimary(Object key) {
+        ClusterNode primary = aff.mapKeyToNode(key);
+
+        if (primary != null)
+            metrics.onPrimaryMapped(locHostSrvs.node(primary.id()) != null);
+    }
+
     /**
      * Pushes buffered data to grid. Flush interval is configured by worker configurations.
      *
@@ -139,63 +480,401 @@ public class IgniteSinkTask extends SinkTask {
         if (stopped)
             return;
 
-        StreamerContext.getStreamer().flush();
+        long start = U.currentTimeMillis();
+
+        if (streamer != null)
+            streamer.flush();
+
+        if (unflushedKeys != null)
+            unflushedKeys.clear();
+
+        metrics.onFlush(U.currentTimeMillis() - start);
+
+        if (exactlyOnce)
+            storeOffsets(offsets);
     }
 
     /**
-     * Stops the grid client.
+     * Commits the offsets of the records completed by the data streamer in asynchronous flush mode, or flushes the
+     * data streamer and commits the current offsets otherwise.
+     *
+     * @param currentOffsets Offsets of the records passed to {@link #put(Collection)}.
+     * @return Offsets to commit.
      */
-    @Override public void stop() {
-        if (stopped)
+    @Override public Map<TopicPartition, OffsetAndMetadata> preCommit(
+        Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        if (!asyncFlush || stopped)
+            return super.preCommit(currentOffsets);
+
+        long start = U.currentTimeMillis();
+
+        // Sends the buffered data without waiting for it to be completed.
+        if (streamer != null)
+            streamer.tryFlush();
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+
+        for (Map.Entry<TopicPartition, Deque<PendingBatch>> e : pending.entrySet()) {
+            Deque<PendingBatch> batches = e.getValue();
+
+            PendingBatch completed = null;
+
+            try {
+                while (!batches.isEmpty() && batches.peek().isDone())
+                    completed = batches.poll();
+            }
+            catch (ConnectException ex) {
+                // Connect only logs the failures of this method, so the task is failed by the next put() instead.
+                if (failure == null) {
+                    log.error("Failed to stream records [part=" + e.getKey() + ']', ex);
+
+                    failure = ex;
+                }
+            }
+
+            if (completed != null)
+                offsets.put(e.getKey(), new OffsetAndMetadata(completed.offset));
+        }
+
+        // Offsets are not committed past the failed batch.
+        if (failure != null)
+            pending.clear();
+
+        // The data of all the batches is completed by the data streamer.
+        if (unflushedKeys != null && pending.values().stream().allMatch(Deque::isEmpty))
+            unflushedKeys.clear();
+
+        metrics.onFlush(U.currentTimeMillis() - start);
+
+        if (exactlyOnce)
+            storeOffsets(offsets);
+
+        return offsets;
+    }
+
+    /**
+     * Resumes consumption of the assigned partitions from the offsets stored in exactly-once mode.
+     *
+     * @param parts Assigned partitions.
+     */
+    @Override public void open(Collection<TopicPartition> parts) {
+        if (!exactlyOnce)
             return;
 
-        stopped = true;
+        Map<String, TopicPartition> keys = new HashMap<>();
+
+        for (TopicPartition part : parts)
+            keys.put(offsetKey(part), part);
+
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+
+        Map<String, Long> stored = client != null ? clientOffsetsCache.getAll(keys.keySet()) :
+            offsetsCache.getAll(keys.keySet());
+
+        for (Map.Entry<String, Long> e : stored.entrySet())
+            offsets.put(keys.get(e.getKey()), e.getValue());
+
+        if (offsets.isEmpty())
+            return;
 
-        StreamerContext.getIgnite().close();
+        appliedOffsets.putAll(offsets);
+
+        context.offset(offsets);
+    }
+
+    /** {@inheritDoc} */
+    @Override public void close(Collection<TopicPartition> parts) {
+        appliedOffsets.keySet().removeAll(parts);
+
+        // Records of the revoked partitions which are not completed yet are redelivered to the new owner.
+        pending.keySet().removeAll(parts);
     }
 
     /**
-     * Used by unit test to avoid restart node and valid state of the <code>stopped</code> flag.
+     * Stores offsets of the flushed records in exactly-once mode.
      *
-     * @param stopped Stopped flag.
+     * @param offsets Offsets of the next records to consume.
+     */
+    private void storeOffsets(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        Map<String, Long> m = new HashMap<>();
+
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> e : offsets.entrySet()) {
+            m.put(offsetKey(e.getKey()), e.getValue().offset());
+
+            appliedOffsets.put(e.getKey(), e.getValue().offset());
+        }
+
+        if (client != null)
+            clientOffsetsCache.putAll(m);
+        else
+            offsetsCache.putAll(m);
+    }
+
+    /**
+     * @param record Record.
+     * @return {@code True} if the record is already applied according to the stored offsets.
      */
-    protected static void setStopped(boolean stopped) {
-        IgniteSinkTask.stopped = stopped;
+    private boolean isApplied(SinkRecord record) {
+        Long off = appliedOffsets.get(new TopicPartition(record.topic(), record.kafkaPartition()));
+
+        return off != null && record.kafkaOffset() < off;
+    }
+
+    /**
+     * @param part Partition.
+     * @return Key of the partition offset in the offsets cache.
+     */
+    private String offsetKey(TopicPartition part) {
+        return offsetKeyPrefix + part.topic() + ':' + part.partition();
+    }
+
+    /**
+     * Closes the data streamer of the task and releases the grid client.
+     */
+    @Override public void stop() {
+        if (stopped)
+            return;
 
-        extractor = null;
+        stopped = true;
+
+        closeResources();
     }
 
     /**
-     * Streamer context initializing grid and data streamer instances on demand.
+     * Closes the data streamer flushing the buffered data and releases the Ignite node, or closes the thin client.
      */
-    public static class StreamerContext {
-        /** Constructor. */
-        private StreamerContext() {
+    private void closeResources() {
+        try {
+            if (streamer != null)
+                streamer.close();
+
+            if (client != null)
+                client.close();
+        }
+        catch (Exception e) {
+            log.error("Failed to close the sink task resources [cache=" + cacheName + ']', e);
         }
+        finally {
+            metrics.unregister();
 
-        /** Instance holder. */
-        private static class Holder {
-            private static final Ignite IGNITE = Ignition.start(igniteConfigFile);
+            streamer = null;
+            client = null;
+            aff = null;
+            locHostSrvs = null;
 
-            private static final IgniteDataStreamer STREAMER = IGNITE.dataStreamer(cacheName);
+            if (ignite != null) {
+                ignite = null;
+
+                IgniteNodeRegistry.release(igniteConfigFile);
+            }
         }
+    }
+
+    /** Entries of a {@link #put(Collection)} call, collected to be added to the data streamer at once. */
+    private class PutBatch {
+        /** Entries by key if keys are de-duplicated, {@code null} otherwise. */
+        private Map<Object, Object> dedupEntries;
+
+        /** Entries if keys are not de-duplicated, {@code null} otherwise. */
+        private List<Map.Entry<Object, Object>> entries;
+
+        /** Keys of the tombstones to remove, {@code null} if tombstones are streamed. */
+        private final Set<Object> removals;
 
         /**
-         * Obtains grid instance.
-         *
-         * @return Grid instance.
+         * Whether the entries added before the removal, by this or the previous {@link #put(Collection)} calls, must be
+         * flushed to keep the order of the records.
+         */
+        private boolean flushBeforeRemoval;
+
+        /** Futures of the added data. */
+        private final List<IgniteFuture<?>> futs = new ArrayList<>(1);
+
+        /**
+         * @param size Number of records.
+         */
+        PutBatch(int size) {
+            if (deduplicateKeys)
+                dedupEntries = new HashMap<>(U.capacity(size));
+            else
+                entries = new ArrayList<>(size);
+
+            removals = unflushedKeys != null ? new HashSet<>() : null;
+        }
+
+        /**
+         * @param entry Entry of a record.
          */
-        public static Ignite getIgnite() {
-            return Holder.IGNITE;
+        void add(Map.Entry<Object, Object> entry) {
+            Object key = entry.getKey();
+
+            if (removals != null) {
+                if (entry.getValue() == null) {
+                    if (unflushedKeys.contains(key))
+                        flushBeforeRemoval = true;
+
+                    removals.add(key);
+
+                    return;
+                }
+
+                if (removals.contains(key))
+                    removeTombstones();
+
+                unflushedKeys.add(key);
+            }
+
+            if (dedupEntries != null)
+                dedupEntries.put(key, entry.getValue());
+            else
+                entries.add(entry);
         }
 
         /**
-         * Obtains data streamer instance.
+         * Adds the collected entries to the data streamer and removes the collected tombstones.
          *
-         * @return Data streamer instance.
+         * @return Futures of the added data.
+         */
+        List<IgniteFuture<?>> finish() {
+            if (removals != null && !removals.isEmpty())
+                removeTombstones();
+
+            addData();
+
+            return futs;
+        }
+
+        /** Removes the collected tombstones, streaming the entries of the same keys collected before them. */
+        private void removeTombstones() {
+            if (flushBeforeRemoval) {
+                addData();
+
+                if (streamer != null)
+                    streamer.flush();
+
+                unflushedKeys.clear();
+
+                flushBeforeRemoval = false;
+            }
+
+            if (client != null)
+                clientCache.removeAll(removals);
+            else
+                tombstonesCache.removeAll(removals);
+
+            removals.clear();
+        }
+
+        /** Adds the collected entries to the data streamer, or puts them with the thin client. */
+        private void addData() {
+            if (client != null) {
+                Map<Object, Object> m = dedupEntries;
+
+                if (entries != null) {
+                    m = new LinkedHashMap<>(U.capacity(entries.size()));
+
+                    for (Map.Entry<Object, Object> e : entries)
+                        m.put(e.getKey(), e.getValue());
+
+                    entries = new ArrayList<>();
+                }
+                else
+                    dedupEntries = new HashMap<>();
+
+                if (!m.isEmpty()) {
+                    try {
+                        clientCache.putAll(m);
+                    }
+                    catch (RuntimeException e) {
+                        metrics.onClientFailure();
+
+                        throw e;
+                    }
+                }
+
+                // The thin client writes the entries synchronously.
+                if (unflushedKeys != null)
+                    unflushedKeys.clear();
+
+                return;
+            }
+
+            // Data is flushed asynchronously when CACHE_PER_NODE_DATA_SIZE is reached.
+            if (dedupEntries != null && !dedupEntries.isEmpty()) {
+                futs.add(track(streamer.addData(dedupEntries), dedupEntries.size()));
+
+                dedupEntries = new HashMap<>();
+            }
+            else if (entries != null && !entries.isEmpty()) {
+                futs.add(track(streamer.addData(entries), entries.size()));
+
+                entries = new ArrayList<>();
+            }
+        }
+    }
+
+    /**
+     * Tracks completion of the data added to the data streamer in the metrics.
+     *
+     * @param fut Future of the added data.
+     * @param cnt Number of entries.
+     * @return Future of the added data.
+     */
+    private IgniteFuture<?> track(IgniteFuture<?> fut, int cnt) {
+        metrics.onAddData(cnt);
+
+        fut.listen(f -> {
+            boolean failed = false;
+
+            try {
+                f.get();
+            }
+            catch (IgniteException ignored) {
+                failed = true;
+            }
+
+            metrics.onDataCompleted(cnt, failed);
+        });
+
+        return fut;
+    }
+
+    /** Records of a partition added to the data streamer by a single {@link #put(Collection)} call. */
+    private static class PendingBatch {
+        /** Offset of the next record to consume. */
+        private final long offset;
+
+        /** Futures of the added data. */
+        private final List<IgniteFuture<?>> futs;
+
+        /**
+         * @param offset Offset of the next record to consume.
+         * @param futs Futures of the added data.
          */
-        public static IgniteDataStreamer getStreamer() {
-            return Holder.STREAMER;
+        PendingBatch(long offset, List<IgniteFuture<?>> futs) {
+            this.offset = offset;
+            this.futs = futs;
+        }
+
+        /**
+         * @return {@code True} if the data is completed by the data streamer.
+         * @throws ConnectException If the data streamer failed to stream the data.
+         */
+        boolean isDone() {
+            for (IgniteFuture<?> fut : futs) {
+                if (!fut.isDone())
+                    return false;
+            }
+
+            try {
+                for (IgniteFuture<?> fut : futs)
+                    fut.get();
+            }
+            catch (IgniteException e) {
+                throw new ConnectException("Failed to stream records.", e);
+            }
+
+            return true;
         }
     }
 }
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.ignite.internal.processors.metric.impl.HistogramMetricImpl;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Metrics of an {@link IgniteSinkTask} registered as an MBean in the platform MBean server. The platform server is used
+ * instead of the Ignite metric registry, as no Ignite node is started by the task in thin client mode.
+ */
+class IgniteSinkTaskMetrics implements IgniteSinkTaskMetricsMXBean {
+    /** Logger. */
+    private static final Logger log = LoggerFactory.getLogger(IgniteSinkTaskMetrics.class);
+
+    /** MBean domain. */
+    static final String MBEAN_DOMAIN = "org.apache.ignite.stream.kafka.connect";
+
+    /** Flush time histogram bounds in milliseconds. */
+    private static final long[] FLUSH_TIME_BOUNDS = new long[] {1, 10, 100, 1_000, 10_000};
+
+    /** Estimated size of the values of unknown types. */
+    private static final int DFLT_SIZE = 8;
+
+    /** Index of the task in the JVM, used if the task is not assigned an index by the connector. */
+    private static final AtomicInteger TASK_IDX = new AtomicInteger();
+
+    /** Number of records passed to the task. */
+    private final LongAdder recordsPut = new LongAdder();
+
+    /** Estimated size of the records. */
+    private final LongAdder bytesEstimated = new LongAdder();
+
+    /** Number of records dropped because of null keys. */
+    private final LongAdder nullKeyDrops = new LongAdder();
+
+    /** Number of records skipped as already applied. */
+    private final LongAdder skippedRecords = new LongAdder();
+
+    /** Number of entries not completed by the data streamer. */
+    private final LongAdder inFlightEntries = new LongAdder();
+
+    /** Number of failed batches. */
+    private final LongAdder failedBatches = new LongAdder();
+
+    /** Number of records mapped to the primary nodes residing on the host of the task. */
+    private final LongAdder localPrimaryRecords = new LongAdder();
+
+    /** Number of records mapped to the primary nodes residing on other hosts. */
+    private final LongAdder remotePrimaryRecords = new LongAdder();
+
+    /** Flush time histogram. */
+    private final HistogramMetricImpl flushTime = new HistogramMetricImpl("FlushTime", null, FLUSH_TIME_BOUNDS);
+
+    /** MBean name, {@code null} if not registered. */
+    private ObjectName mbeanName;
+
+    /**
+     * Registers the MBean.
+     *
+     * @param cacheName Cache name of the task.
+     * @param connName Connector name, {@code null} if unknown.
+     * @param taskId Index of the task assigned by the connector, {@code null} if not assigned.
+     */
+    void register(String cacheName, String connName, String taskId) {
+        // Task indexes are unique within a connector only.
+        String task = connName != null && taskId != null ? taskId : String.valueOf(TASK_IDX.incrementAndGet());
+
+        try {
+            ObjectName name = new ObjectName(MBEAN_DOMAIN + ":type=IgniteSinkTask,cache=" + ObjectName.quote(cacheName)
+                + (connName != null ? ",connector=" + ObjectName.quote(connName) : "") + ",task=" + task);
+
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+
+            mbeanName = name;
+        }
+        catch (JMException e) {
+            log.warn("Failed to register sink task metrics MBean [cache=" + cacheName + ']', e);
+        }
+    }
+
+    /** Unregisters the MBean. */
+    void unregister() {
+        if (mbeanName == null)
+            return;
+
+        MBeanServer srv = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            srv.unregisterMBean(mbeanName);
+        }
+        catch (JMException e) {
+            log.warn("Failed to unregister sink task metrics MBean [name=" + mbeanName + ']', e);
+        }
+
+        mbeanName = null;
+    }
+
+    /**
+     * Callback for a record passed to the task.
+     *
+     * @param key Record key.
+     * @param val Record value.
+     */
+    void onRecord(Object key, Object val) {
+        recordsPut.increment();
+
+        bytesEstimated.add(estimateSize(key) + estimateSize(val));
+    }
+
+    /** Callback for a record dropped because of the null key. */
+    void onNullKeyDrop() {
+        nullKeyDrops.increment();
+    }
+
+    /** Callback for a record skipped as already applied. */
+    void onSkippedRecord() {
+        skippedRecords.increment();
+    }
+
+    /**
+     * Callback for entries added to the data streamer.
+     *
+     * @param cnt Number of entries.
+     */
+    void onAddData(int cnt) {
+        inFlightEntries.add(cnt);
+    }
+
+    /**
+     * Callback for entries completed by the data streamer.
+     *
+     * @param cnt Number of entries.
+     * @param failed Whether the data streamer failed to stream the entries.
+     */
+    void onDataCompleted(int cnt, boolean failed) {
+        inFlightEntries.add(-cnt);
+
+        if (failed)
+            failedBatches.increment();
+    }
+
+    /** Callback for a batch the thin client failed to write. */
+    void onClientFailure() {
+        failedBatches.increment();
+    }
+
+    /**
+     * Callback for a record mapped to the primary node.
+     *
+     * @param loc Whether the primary node resides on the host of the task.
+     */
+    void onPrimaryMapped(boolean loc) {
+        if (loc)
+            localPrimaryRecords.increment();
+        else
+            remotePrimaryRecords.increment();
+    }
+
+    /**
+     * Callback for a flush.
+     *
+     * @param millis Flush time in milliseconds.
+     */
+    void onFlush(long millis) {
+        flushTime.value(millis);
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getRecordsPut() {
+        return recordsPut.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getBytesEstimated() {
+        return bytesEstimated.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getNullKeyDrops() {
+        return nullKeyDrops.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getSkippedRecords() {
+        return skippedRecords.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getInFlightEntries() {
+        return inFlightEntries.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getLocalPrimaryRecords() {
+        return localPrimaryRecords.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getRemotePrimaryRecords() {
+        return remotePrimaryRecords.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long[] getFlushTimeBounds() {
+        return FLUSH_TIME_BOUNDS.clone();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long[] getFlushTimeHistogram() {
+        return flushTime.value();
+    }
+
+    /**
+     * Estimates the serialized size of a record key or value.
+     *
+     * @param val Value.
+     * @return Estimated size in bytes.
+     */
+    private static long estimateSize(Object val) {
+        if (val == null)
+            return 0;
+
+        if (val instanceof byte[])
+            return ((byte[])val).length;
+
+        if (val instanceof ByteBuffer)
+            return ((ByteBuffer)val).remaining();
+
+        if (val instanceof String)
+            return utf8Length((String)val);
+
+        if (val instanceof Struct) {
+            Struct struct = (Struct)val;
+
+            long size = 0;
+
+            for (Field field : struct.schema().fields())
+                size += estimateSize(struct.get(field));
+
+            return size;
+        }
+
+        return DFLT_SIZE;
+    }
+
+    /**
+     * @param str String.
+     * @return Length of the string encoded in UTF-8, computed without encoding it.
+     */
+    private static long utf8Length(String str) {
+        long len = 0;
+
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+
+            if (c < 0x80)
+                len++;
+            else if (c < 0x800)
+                len += 2;
+            else if (Character.isSurrogate(c)) {
+                // A surrogate pair is encoded in 4 bytes.
+                len += 2;
+            }
+            else
+                len += 3;
+        }
+
+        return len;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import org.apache.ignite.mxbean.MXBeanDescription;
+
+/**
+ * MBean exposing metrics of an {@link IgniteSinkTask}.
+ */
+@MXBeanDescription("MBean that provides metrics of an Ignite sink task.")
+public interface IgniteSinkTaskMetricsMXBean {
+    /**
+     * @return Number of records passed to the task.
+     */
+    @MXBeanDescription("Number of records passed to the task.")
+    public long getRecordsPut();
+
+    /**
+     * @return Estimated size of the keys and values of the records passed to the task in bytes, strings are counted
+     *      in UTF-8.
+     */
+    @MXBeanDescription("Estimated size of the keys and values of the records passed to the task in bytes.")
+    public long getBytesEstimated();
+
+    /**
+     * @return Number of records dropped because of null keys.
+     */
+    @MXBeanDescription("Number of records dropped because of null keys.")
+    public long getNullKeyDrops();
+
+    /**
+     * @return Number of records skipped as already applied in exactly-once mode.
+     */
+    @MXBeanDescription("Number of records skipped as already applied in exactly-once mode.")
+    public long getSkippedRecords();
+
+    /**
+     * @return Number of entries added to the data streamer and not completed yet.
+     */
+    @MXBeanDescription("Number of entries added to the data streamer and not completed yet.")
+    public long getInFlightEntries();
+
+    /**
+     * @return Number of batches the data streamer, or the thin client in thin client mode, failed to write.
+     */
+    @MXBeanDescription("Number of batches failed to be written.")
+    public long getFailedBatches();
+
+    /**
+     * @return Number of records mapped to the primary nodes residing on the host of the task, if primary locality
+     *      metrics are enabled.
+     */
+    @MXBeanDescription("Number of records mapped to the primary nodes residing on the host of the task.")
+    public long getLocalPrimaryRecords();
+
+    /**
+     * @return Number of records mapped to the primary nodes residing on other hosts, if primary locality metrics are
+     *      enabled.
+     */
+    @MXBeanDescription("Number of records mapped to the primary nodes residing on other hosts.")
+    public long getRemotePrimaryRecords();
+
+    /**
+     * @return Upper bounds of the flush time histogram buckets in milliseconds.
+     */
+    @MXBeanDescription("Upper bounds of the flush time histogram buckets in milliseconds.")
+    public long[] getFlushTimeBounds();
+
+    /**
+     * @return Number of flushes per flush time histogram bucket, the last bucket counts the flushes exceeding the
+     *      last bound. In asynchronous flush mode the time of the offsets commit is counted, which includes sending
+     *      the buffered data without waiting for it to be completed.
+     */
+    @MXBeanDescription("Number of flushes per flush time histogram bucket.")
+    public long[] getFlushTimeHistogram();
+}
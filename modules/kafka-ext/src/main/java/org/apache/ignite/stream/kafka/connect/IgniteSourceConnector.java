@@ -32,6 +32,8 @@ import org.apache.kafka.connect.source.SourceConnector;
  * Source connector to manage source tasks that listens to registered Ignite grid events and forward them to Kafka.
  *
  * Note that only cache events are enabled for streaming.
+ *
+ * The cache partitions are split across the tasks, so that each task captures the events of its own partition range.
  */
 public class IgniteSourceConnector extends SourceConnector {
     /** Source properties. */
@@ -68,12 +70,16 @@ public class IgniteSourceConnector extends SourceConnector {
     /** {@inheritDoc} */
     @Override public List<Map<String, String>> taskConfigs(int maxTasks) {
         List<Map<String, String>> taskConfigs = new ArrayList<>();
-        Map<String, String> taskProps = new HashMap<>();
 
-        taskProps.putAll(configProps);
+        // Tasks resolve their partition ranges, as the number of the cache partitions is known to the grid only.
+        for (int i = 0; i < maxTasks; i++) {
+            Map<String, String> taskProps = new HashMap<>(configProps);
+
+            taskProps.put(IgniteSourceConstants.TASK_ID, String.valueOf(i));
+            taskProps.put(IgniteSourceConstants.TASKS_CNT, String.valueOf(maxTasks));
 
-        for (int i = 0; i < maxTasks; i++)
             taskConfigs.add(taskProps);
+        }
 
         return taskConfigs;
     }
@@ -33,6 +33,27 @@ public class IgniteSourceConstants {
     /** Internal buffer size. */
     public static final String INTL_BUF_SIZE = "evtBufferSize";
 
+    /**
+     * Policy applied to the events added to the full internal buffer: {@code drop_oldest} events (default),
+     * {@code block} the listener, {@code spill} events to disk, or {@code pause} the continuous query until the buffer
+     * is drained (default in {@link #CONTINUOUS_QUERY} mode). The paused continuous query is restarted with the scan
+     * queries of the partitions updated since the last injected events, so {@code pause} is supported in
+     * {@link #CONTINUOUS_QUERY} mode only.
+     * <p>
+     * Note that in {@link #CONTINUOUS_QUERY} mode {@code drop_oldest} loses updates: the counters of the dropped events
+     * are committed by the later events of the same partitions, so the dropped updates are not injected on restart
+     * either. The buffer is not drained while the partitions updated before a restart are scanned, so it may overflow
+     * even if the task keeps up with the updates.
+     * <p>
+     * Note that {@code block} parks the Ignite threads notifying the listener, which are system threads in continuous
+     * query mode, so a task not keeping up may stall the node and trigger its failure handler for blocked critical
+     * workers. Use it only if the task is known to drain the buffer faster than the events arrive.
+     */
+    public static final String INTL_BUF_OVERFLOW_POLICY = "evtBufferOverflowPolicy";
+
+    /** Directory of the files events are spilled to by the {@code spill} policy, temporary directory by default. */
+    public static final String INTL_BUF_SPILL_DIR = "evtBufferSpillDir";
+
     /** Size of one chunk drained from the internal buffer. */
     public static final String INTL_BATCH_SIZE = "evtBatchSize";
 
@@ -41,4 +62,31 @@ public class IgniteSourceConstants {
 
     /** Kafka topic. */
     public static final String TOPIC_NAMES = "topicNames";
+
+    /**
+     * Flag to capture cache updates with a continuous query instead of remote event listeners, so that cache events
+     * don't need to be enabled. Only {@code put}, {@code removed} and {@code expired} events are supported.
+     */
+    public static final String CONTINUOUS_QUERY = "continuousQuery";
+
+    /** Number of continuous query events sent to the task at once. */
+    public static final String CQ_PAGE_SIZE = "cqPageSize";
+
+    /** Time interval in milliseconds to send the incomplete page of continuous query events after. */
+    public static final String CQ_TIME_INTERVAL = "cqTimeInterval";
+
+    /**
+     * Flag to emit the cache keys as record keys and the cache values as record values with Connect schemas instead
+     * of {@link org.apache.ignite.events.CacheEvent} values. Binary objects are converted into
+     * {@link org.apache.kafka.connect.data.Struct}s, and removals are emitted as tombstones. In continuous query mode
+     * the entries are read in binary form, and the user-defined filter gets binary keys and values. Not supported
+     * with the {@code spill} overflow policy in continuous query mode.
+     */
+    public static final String BINARY_TO_STRUCT = "binaryToStruct";
+
+    /** Index of the task assigned by {@link IgniteSourceConnector}, defines the cache partitions of the task. */
+    public static final String TASK_ID = "taskId";
+
+    /** Number of the tasks the cache partitions are split across by {@link IgniteSourceConnector}. */
+    public static final String TASKS_CNT = "tasksCnt";
 }
@@ -17,23 +17,44 @@
 
 package org.apache.ignite.stream.kafka.connect;
 
+import java.io.File;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.cache.Cache;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryListenerException;
 import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
 import org.apache.ignite.IgniteException;
-import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.CacheEntryEventSerializableFilter;
 import org.apache.ignite.cache.affinity.Affinity;
+import org.apache.ignite.cache.query.ContinuousQuery;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.cluster.ClusterNode;
 import org.apache.ignite.events.CacheEvent;
 import org.apache.ignite.events.EventType;
+import org.apache.ignite.internal.IgniteEx;
+import org.apache.ignite.internal.processors.cache.GridCacheContext;
+import org.apache.ignite.internal.processors.cache.distributed.dht.topology.GridDhtLocalPartition;
+import org.apache.ignite.internal.processors.cache.query.CacheQueryEntryEvent;
 import org.apache.ignite.lang.IgniteBiPredicate;
+import org.apache.ignite.lang.IgniteCallable;
 import org.apache.ignite.lang.IgnitePredicate;
 import org.apache.ignite.resources.IgniteInstanceResource;
+import org.apache.kafka.connect.data.SchemaAndValue;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.source.SourceTask;
@@ -43,51 +64,148 @@ import org.slf4j.LoggerFactory;
 /**
  * Task to consume remote cluster cache events from the grid and inject them into Kafka.
  * <p>
+ * Each task captures the events of its own range of the cache partitions, assigned by {@link IgniteSourceConnector},
+ * and buffers them in its own queue, so that the throughput scales with the number of tasks. Tasks configured with the
+ * same Ignite configuration file share the Ignite node, which is stopped when the last of them is stopped.
+ * <p>
  * Note that a task will create a bounded queue in the grid for more reliable data transfer.
- * Queue size can be changed by {@link IgniteSourceConstants#INTL_BUF_SIZE}.
+ * Queue size can be changed by {@link IgniteSourceConstants#INTL_BUF_SIZE}, and the policy applied to the events
+ * added to the full queue by {@link IgniteSourceConstants#INTL_BUF_OVERFLOW_POLICY}. By default the oldest events are
+ * dropped, and in continuous query mode the query is paused until the queue is drained, so that the Ignite threads
+ * notifying the task are never parked. Buffer occupancy, overflows and dropped events are exposed by
+ * {@link IgniteSourceTaskMetricsMXBean} registered in the platform MBean server.
+ * <p>
+ * If {@link IgniteSourceConstants#CONTINUOUS_QUERY} is enabled, cache updates are captured with a continuous query
+ * instead of remote event listeners, so that cache events don't need to be enabled on the server nodes. Updates are
+ * filtered on the primary nodes and sent to the task in pages, and are injected into Kafka as {@link CacheEvent}s.
+ * <p>
+ * In continuous query mode the records are emitted with the Ignite partition of the key as the source partition, and
+ * the partition update counter as the offset. On restart, the task compares the committed counters with the current
+ * counters of the primary partitions, and the entries of the partitions updated while the task was stopped are
+ * injected by scan queries, one partition at a time, before the updates captured by the continuous query. The entries
+ * of a partition carry the committed counter except the last one, so that the partition is scanned again if the task
+ * fails before it is injected completely. Removals made while the task was stopped are not captured. The queue is not
+ * drained while the partitions are scanned, so the updates captured meanwhile are lost if the events overflowing it
+ * are dropped, as their counters are committed by the later events of the same partitions. The default policy pauses
+ * the continuous query instead, and the updates made while it is paused are injected by the scan queries on resume.
+ * <p>
+ * If {@link IgniteSourceConstants#BINARY_TO_STRUCT} is enabled, the records carry the cache keys and values with
+ * Connect schemas, so that Kafka partitions the records by the cache keys and compacted topics keep the last values.
  */
 public class IgniteSourceTask extends SourceTask {
     /** Logger. */
     private static final Logger log = LoggerFactory.getLogger(IgniteSourceTask.class);
 
-    /** Tasks static monitor. */
-    private static final Object lock = new Object();
+    /** Default event buffer size. */
+    private static final int DFLT_EVT_BUF_SIZE = 100000;
+
+    /** Default policy applied to the events added to the full buffer, which never parks the Ignite threads. */
+    private static final EventBuffer.OverflowPolicy DFLT_OVERFLOW_PLC = EventBuffer.OverflowPolicy.DROP_OLDEST;
+
+    /**
+     * Default policy applied to the events added to the full buffer in continuous query mode, which never parks the
+     * Ignite threads and does not lose the updates.
+     */
+    private static final EventBuffer.OverflowPolicy DFLT_CQ_OVERFLOW_PLC = EventBuffer.OverflowPolicy.PAUSE;
+
+    /** Default max number of events taken from the buffer at once. */
+    private static final int DFLT_EVT_BATCH_SIZE = 100;
+
+    /** Property of the connector name set by Connect. */
+    private static final String CONNECTOR_NAME = "name";
+
+    /** Offset. */
+    private static final Map<String, Long> offset = Collections.singletonMap("offset", 0L);
+
+    /** Partition. */
+    private static final Map<String, String> srcPartition = Collections.singletonMap("cache", null);
+
+    /** Source partition field of the cache name. */
+    static final String CACHE_FIELD = "cache";
+
+    /** Source partition field of the Ignite partition. */
+    static final String PARTITION_FIELD = "partition";
 
-    /** Event buffer size. */
-    private static int evtBufSize = 100000;
+    /** Offset field of the partition update counter. */
+    static final String UPDATE_COUNTER_FIELD = "updateCounter";
 
     /** Event buffer. */
-    private static BlockingQueue<CacheEvent> evtBuf = new LinkedBlockingQueue<>(evtBufSize);
+    private EventBuffer<BufferedEvent> evtBuf;
+
+    /** Task metrics. */
+    private IgniteSourceTaskMetrics metrics;
+
+    /** Flag of the continuous query paused because of the full event buffer. */
+    private final AtomicBoolean paused = new AtomicBoolean();
 
     /** Max number of events taken from the buffer at once. */
-    private static int evtBatchSize = 100;
+    private int evtBatchSize = DFLT_EVT_BATCH_SIZE;
 
     /** Flag for stopped state. */
-    private static volatile boolean stopped = true;
+    private volatile boolean stopped = true;
 
     /** Ignite grid configuration file. */
-    private static String igniteCfgFile;
+    private String igniteCfgFile;
+
+    /** Ignite node. */
+    private Ignite ignite;
 
     /** Cache name. */
-    private static String cacheName;
+    private String cacheName;
+
+    /** First partition of the task, inclusive. */
+    private int partFrom;
+
+    /** Last partition of the task, exclusive. */
+    private int partTo;
 
     /** Remote Listener id. */
-    private static UUID rmtLsnrId;
+    private UUID rmtLsnrId;
 
-    /** Local listener. */
-    private static TaskLocalListener locLsnr = new TaskLocalListener();
+    /** Cursor of the continuous query in continuous query mode, {@code null} otherwise. */
+    private QueryCursor<Cache.Entry<Object, Object>> cqCur;
 
-    /** User-defined filter. */
-    private static IgnitePredicate<CacheEvent> filter;
+    /** Cache the updated partitions are scanned in. */
+    private IgniteCache<Object, Object> scanCache;
 
-    /** Topic. */
-    private static String topics[];
+    /** Partitions to scan, {@code null} if there are none or their entries are injected. */
+    private Deque<Integer> scanParts;
 
-    /** Offset. */
-    private static final Map<String, Long> offset = Collections.singletonMap("offset", 0L);
+    /** Cursor of the scan query of the partition being injected, {@code null} if none. */
+    private QueryCursor<Cache.Entry<Object, Object>> scanCur;
 
-    /** Partition. */
-    private static final Map<String, String> srcPartition = Collections.singletonMap("cache", null);
+    /** Iterator over the entries of the partition being injected, {@code null} if none. */
+    private Iterator<Cache.Entry<Object, Object>> scanIter;
+
+    /** Partition being injected by the scan query. */
+    private int scanPart;
+
+    /** Committed update counters of the partitions the scan queries are started from. */
+    private Map<Integer, Long> scanFromCntrs;
+
+    /** Update counters of the partitions taken after the continuous query is registered. */
+    private Map<Integer, Long> initCntrs;
+
+    /** Affinity of the cache. */
+    private Affinity<Object> aff;
+
+    /** Task properties to restart the paused continuous query with. */
+    private Map<String, String> cqProps;
+
+    /** Cache events captured by the continuous query. */
+    private int[] cqEvts;
+
+    /** Update counters of the partitions up to which the updates are injected, in continuous query mode. */
+    private Map<Integer, Long> injectedCntrs;
+
+    /** User-defined filter. */
+    private IgnitePredicate<CacheEvent> filter;
+
+    /** Converter of the cache keys and values into Connect data, {@code null} to emit cache events. */
+    private BinaryToStructConverter structConverter;
+
+    /** Topic. */
+    private String topics[];
 
     /** {@inheritDoc} */
     @Override public String version() {
@@ -100,71 +218,361 @@ public class IgniteSourceTask extends SourceTask {
      * @param props Task properties.
      */
     @Override public void start(Map<String, String> props) {
-        synchronized (lock) {
-            // Each task has the same parameters -- avoid setting more than once.
-            // Nothing to do if the task has been already started.
-            if (!stopped)
-                return;
-
-            cacheName = props.get(IgniteSourceConstants.CACHE_NAME);
-            igniteCfgFile = props.get(IgniteSourceConstants.CACHE_CFG_PATH);
-            topics = props.get(IgniteSourceConstants.TOPIC_NAMES).split("\\s*,\\s*");
-
-            if (props.containsKey(IgniteSourceConstants.INTL_BUF_SIZE))
-                evtBufSize = Integer.parseInt(props.get(IgniteSourceConstants.INTL_BUF_SIZE));
-
-            if (props.containsKey(IgniteSourceConstants.INTL_BATCH_SIZE))
-                evtBatchSize = Integer.parseInt(props.get(IgniteSourceConstants.INTL_BATCH_SIZE));
-
-            if (props.containsKey(IgniteSourceConstants.CACHE_FILTER_CLASS)) {
-                String filterCls = props.get(IgniteSourceConstants.CACHE_FILTER_CLASS);
-                if (filterCls != null && !filterCls.isEmpty()) {
-                    try {
-                        Class<? extends IgnitePredicate<CacheEvent>> clazz =
-                            (Class<? extends IgnitePredicate<CacheEvent>>)Class.forName(filterCls);
-
-                        filter = clazz.newInstance();
-                    }
-                    catch (Exception e) {
-                        log.error("Failed to instantiate the provided filter! " +
-                            "User-enabled filtering is ignored!", e);
-                    }
+        cacheName = props.get(IgniteSourceConstants.CACHE_NAME);
+        igniteCfgFile = props.get(IgniteSourceConstants.CACHE_CFG_PATH);
+        topics = props.get(IgniteSourceConstants.TOPIC_NAMES).split("\\s*,\\s*");
+
+        int evtBufSize = DFLT_EVT_BUF_SIZE;
+
+        if (props.containsKey(IgniteSourceConstants.INTL_BUF_SIZE))
+            evtBufSize = Integer.parseInt(props.get(IgniteSourceConstants.INTL_BUF_SIZE));
+
+        if (props.containsKey(IgniteSourceConstants.INTL_BATCH_SIZE))
+            evtBatchSize = Integer.parseInt(props.get(IgniteSourceConstants.INTL_BATCH_SIZE));
+
+        if (props.containsKey(IgniteSourceConstants.CACHE_FILTER_CLASS)) {
+            String filterCls = props.get(IgniteSourceConstants.CACHE_FILTER_CLASS);
+            if (filterCls != null && !filterCls.isEmpty()) {
+                try {
+                    Class<? extends IgnitePredicate<CacheEvent>> clazz =
+                        (Class<? extends IgnitePredicate<CacheEvent>>)Class.forName(filterCls);
+
+                    filter = clazz.newInstance();
+                }
+                catch (Exception e) {
+                    log.error("Failed to instantiate the provided filter! " +
+                        "User-enabled filtering is ignored!", e);
                 }
             }
+        }
+
+        try {
+            int[] evts = cacheEvents(props.get(IgniteSourceConstants.CACHE_EVENTS));
 
-            TaskRemoteFilter rmtLsnr = new TaskRemoteFilter(cacheName);
+            boolean cqMode = Boolean.parseBoolean(props.get(IgniteSourceConstants.CONTINUOUS_QUERY));
 
-            try {
-                int[] evts = cacheEvents(props.get(IgniteSourceConstants.CACHE_EVENTS));
+            String plcName = props.get(IgniteSourceConstants.INTL_BUF_OVERFLOW_POLICY);
 
-                rmtLsnrId = IgniteGrid.getIgnite().events(IgniteGrid.getIgnite().cluster().forCacheNodes(cacheName))
-                    .remoteListen(locLsnr, rmtLsnr, evts);
+            EventBuffer.OverflowPolicy plc = plcName != null ?
+                EventBuffer.OverflowPolicy.valueOf(plcName.toUpperCase()) : cqMode ? DFLT_CQ_OVERFLOW_PLC :
+                DFLT_OVERFLOW_PLC;
+
+            if (plc == EventBuffer.OverflowPolicy.PAUSE && !cqMode)
+                throw new ConnectException("Pause overflow policy is supported in continuous query mode only.");
+
+            boolean binaryToStruct = Boolean.parseBoolean(props.get(IgniteSourceConstants.BINARY_TO_STRUCT));
+
+            // Binary objects are not spilled, as they are bound to the node they are read by.
+            if (plc == EventBuffer.OverflowPolicy.SPILL && cqMode && binaryToStruct) {
+                throw new ConnectException("Spill overflow policy is not supported with binary to struct conversion " +
+                    "in continuous query mode.");
             }
-            catch (Exception e) {
-                log.error("Failed to register event listener!", e);
 
-                throw new ConnectException(e);
+            String spillDir = props.get(IgniteSourceConstants.INTL_BUF_SPILL_DIR);
+
+            evtBuf = new EventBuffer<>(evtBufSize, plc, spillDir != null ? new File(spillDir) : null);
+
+            metrics = new IgniteSourceTaskMetrics(evtBuf);
+
+            metrics.register(cacheName, props.get(CONNECTOR_NAME), props.get(IgniteSourceConstants.TASK_ID));
+
+            ignite = IgniteNodeRegistry.acquire(igniteCfgFile);
+
+            aff = ignite.affinity(cacheName);
+
+            if (binaryToStruct)
+                structConverter = new BinaryToStructConverter(ignite.binary());
+
+            assignPartitions(props);
+
+            if (cqMode) {
+                validateContinuousQueryEvents(evts);
+
+                cqProps = props;
+                cqEvts = evts;
+
+                startContinuousQuery(committedCounters());
+            }
+            else {
+                TaskRemoteFilter rmtLsnr = new TaskRemoteFilter(cacheName, filter, partFrom, partTo);
+
+                rmtLsnrId = ignite.events(ignite.cluster().forCacheNodes(cacheName))
+                    .remoteListen(new TaskLocalListener(), rmtLsnr, evts);
+            }
+        }
+        catch (Exception e) {
+            log.error("Failed to register event listener!", e);
+
+            closeResources();
+
+            throw new ConnectException(e);
+        }
+
+        stopped = false;
+    }
+
+    /**
+     * Assigns the range of the cache partitions to the task by the task index and the number of tasks.
+     *
+     * @param props Task properties.
+     */
+    private void assignPartitions(Map<String, String> props) {
+        int taskId = Integer.parseInt(props.getOrDefault(IgniteSourceConstants.TASK_ID, "0"));
+        int tasksCnt = Integer.parseInt(props.getOrDefault(IgniteSourceConstants.TASKS_CNT, "1"));
+
+        int parts = aff.partitions();
+
+        partFrom = (int)((long)parts * taskId / tasksCnt);
+        partTo = (int)((long)parts * (taskId + 1) / tasksCnt);
+
+        if (partFrom == partTo) {
+            log.warn("No cache partitions are assigned to the task, the number of tasks exceeds the number of " +
+                "partitions [cache=" + cacheName + ", taskId=" + taskId + ", parts=" + parts + ']');
+        }
+    }
+
+    /**
+     * @param part Partition.
+     * @return Whether the partition is assigned to the task.
+     */
+    private boolean isAssigned(int part) {
+        return part >= partFrom && part < partTo;
+    }
+
+    /**
+     * @param evts Ignite internal representation of the cache events to capture.
+     * @throws ConnectException If the events are not supported in continuous query mode.
+     */
+    private static void validateContinuousQueryEvents(int[] evts) {
+        for (int evt : evts) {
+            if (evt != EventType.EVT_CACHE_OBJECT_PUT && evt != EventType.EVT_CACHE_OBJECT_REMOVED &&
+                evt != EventType.EVT_CACHE_OBJECT_EXPIRED) {
+                throw new ConnectException("Only put, removed and expired events are supported in continuous " +
+                    "query mode.");
             }
-            finally {
-                stopped = false;
+        }
+    }
+
+    /**
+     * Starts the continuous query capturing the updates of the cache. The entries of the partitions updated since the
+     * given counters are injected by the scan queries.
+     *
+     * @param fromCntrs Update counters of the partitions up to which the updates are injected, empty to inject only
+     *      the updates made after the start.
+     */
+    private void startContinuousQuery(Map<Integer, Long> fromCntrs) {
+        IgniteCache<Object, Object> cache = ignite.cache(cacheName);
+
+        if (cache == null)
+            throw new ConnectException("Cache not found [cache=" + cacheName + ']');
+
+        // Entries are converted from the binary form, so that the classes of the keys and values are not needed.
+        if (structConverter != null)
+            cache = cache.withKeepBinary();
+
+        boolean inclExpired = false;
+
+        for (int evt : cqEvts) {
+            if (evt == EventType.EVT_CACHE_OBJECT_EXPIRED)
+                inclExpired = true;
+        }
+
+        ContinuousQuery<Object, Object> qry = new ContinuousQuery<>();
+
+        qry.setRemoteFilterFactory(FactoryBuilder.factoryOf(
+            new TaskContinuousQueryFilter(cacheName, cqEvts, filter, partFrom, partTo)));
+
+        qry.setLocalListener(updates -> {
+            ClusterNode locNode = ignite.cluster().localNode();
+
+            for (CacheEntryEvent<?, ?> cqEvt : updates) {
+                long cntr = cqEvt instanceof CacheQueryEntryEvent ?
+                    ((CacheQueryEntryEvent<?, ?>)cqEvt).getPartitionUpdateCounter() : -1;
+
+                bufferEvent(new BufferedEvent(cacheEvent(locNode, cacheName, aff.partition(cqEvt.getKey()), cqEvt),
+                    cntr));
             }
+        });
+
+        qry.setIncludeExpired(inclExpired);
+
+        if (cqProps.containsKey(IgniteSourceConstants.CQ_PAGE_SIZE))
+            qry.setPageSize(Integer.parseInt(cqProps.get(IgniteSourceConstants.CQ_PAGE_SIZE)));
+
+        if (cqProps.containsKey(IgniteSourceConstants.CQ_TIME_INTERVAL))
+            qry.setTimeInterval(Long.parseLong(cqProps.get(IgniteSourceConstants.CQ_TIME_INTERVAL)));
+
+        cqCur = cache.query(qry);
+
+        // Counters are taken once the query is registered, so that the updates after them are captured by it.
+        initCntrs = partitionCounters();
+
+        // Updates up to the current counters are injected either before or by the scan queries.
+        injectedCntrs = new HashMap<>(initCntrs);
+
+        TreeSet<Integer> updatedParts = new TreeSet<>();
+
+        // Partitions without committed counters are scanned as they may be updated since the task was stopped.
+        if (!fromCntrs.isEmpty()) {
+            initCntrs.forEach((p, cntr) -> {
+                if (cntr > fromCntrs.getOrDefault(p, 0L))
+                    updatedParts.add(p);
+            });
+        }
+
+        if (!updatedParts.isEmpty()) {
+            log.info("Partitions updated while the updates were not captured are injected by the scan queries " +
+                "[cache=" + cacheName + ", parts=" + updatedParts.size() + ']');
+
+            scanCache = cache;
+            scanFromCntrs = new HashMap<>(fromCntrs);
+            scanParts = new ArrayDeque<>(updatedParts);
         }
     }
 
+    /**
+     * @return Committed update counters of the partitions of the task.
+     */
+    private Map<Integer, Long> committedCounters() {
+        if (context == null)
+            return Collections.emptyMap();
+
+        List<Map<String, Object>> srcParts = new ArrayList<>(partTo - partFrom);
+
+        for (int p = partFrom; p < partTo; p++)
+            srcParts.add(sourcePartition(cacheName, p));
+
+        Map<Map<String, Object>, Map<String, Object>> offsets = context.offsetStorageReader().offsets(srcParts);
+
+        Map<Integer, Long> committed = new HashMap<>();
+
+        for (Map.Entry<Map<String, Object>, Map<String, Object>> e : offsets.entrySet()) {
+            if (e.getValue() == null || !(e.getValue().get(UPDATE_COUNTER_FIELD) instanceof Number))
+                continue;
+
+            committed.put(((Number)e.getKey().get(PARTITION_FIELD)).intValue(),
+                ((Number)e.getValue().get(UPDATE_COUNTER_FIELD)).longValue());
+        }
+
+        return committed;
+    }
+
+    /**
+     * @return Current update counters of the primary partitions of the task.
+     */
+    private Map<Integer, Long> partitionCounters() {
+        Map<Integer, Long> res = new HashMap<>();
+
+        Collection<Map<Integer, Long>> nodeCntrs = ignite.compute(ignite.cluster().forDataNodes(cacheName))
+            .broadcast(new PartitionCountersJob(cacheName));
+
+        for (Map<Integer, Long> cntrs : nodeCntrs) {
+            cntrs.forEach((p, cntr) -> {
+                if (isAssigned(p))
+                    res.merge(p, cntr, Math::max);
+            });
+        }
+
+        return res;
+    }
+
+    /**
+     * @param cacheName Cache name.
+     * @param part Ignite partition.
+     * @return Source partition of the records.
+     */
+    private static Map<String, Object> sourcePartition(String cacheName, int part) {
+        Map<String, Object> srcPart = new HashMap<>();
+
+        srcPart.put(CACHE_FIELD, cacheName);
+        srcPart.put(PARTITION_FIELD, part);
+
+        return srcPart;
+    }
+
+    /**
+     * Converts a continuous query event to the cache event.
+     *
+     * @param node Node converting the event.
+     * @param cacheName Cache name.
+     * @param part Ignite partition of the key.
+     * @param cqEvt Continuous query event.
+     * @return Cache event.
+     */
+    private static CacheEvent cacheEvent(ClusterNode node, String cacheName, int part, CacheEntryEvent<?, ?> cqEvt) {
+        return new CacheEvent(cacheName, node, null, "Continuous query event.", eventType(cqEvt), part, false,
+            cqEvt.getKey(), null, null, cqEvt.getValue(), cqEvt.getValue() != null, cqEvt.getOldValue(),
+            cqEvt.getOldValue() != null, null, null, null);
+    }
+
+    /**
+     * @param cqEvt Continuous query event.
+     * @return Type of the corresponding cache event.
+     */
+    private static int eventType(CacheEntryEvent<?, ?> cqEvt) {
+        switch (cqEvt.getEventType()) {
+            case REMOVED:
+                return EventType.EVT_CACHE_OBJECT_REMOVED;
+
+            case EXPIRED:
+                return EventType.EVT_CACHE_OBJECT_EXPIRED;
+
+            default:
+                return EventType.EVT_CACHE_OBJECT_PUT;
+        }
+    }
+
+    /**
+     * Buffers the cache event to be further sent to Kafka.
+     *
+     * @param evt Buffered event.
+     */
+    private void bufferEvent(BufferedEvent evt) {
+        // The updates made while paused are injected by the initial scan query on resume.
+        if (paused.get())
+            return;
+
+        if (!evtBuf.add(evt) && !stopped && paused.compareAndSet(false, true)) {
+            metrics.onPause();
+
+            log.warn("Event buffer is full, the continuous query is paused until the buffer is drained [cache=" +
+                cacheName + ']');
+        }
+    }
+
+    /**
+     * Restarts the continuous query paused because of the full event buffer.
+     */
+    private void resumeContinuousQuery() {
+        cqCur.close();
+
+        paused.set(false);
+
+        startContinuousQuery(injectedCntrs);
+    }
+
     /** {@inheritDoc} */
     @Override public List<SourceRecord> poll() throws InterruptedException {
         ArrayList<SourceRecord> records = new ArrayList<>(evtBatchSize);
-        ArrayList<CacheEvent> evts = new ArrayList<>(evtBatchSize);
+        ArrayList<BufferedEvent> evts = new ArrayList<>(evtBatchSize);
 
         if (stopped)
             return records;
 
         try {
-            if (evtBuf.drainTo(evts, evtBatchSize) > 0) {
-                for (CacheEvent evt : evts) {
-                    // schema and keys are ignored.
+            // Updates are injected after the scanned entries, so that their counters are not committed before.
+            if (scanParts != null)
+                pollInitialEntries(evts);
+            else if (evtBuf.drainTo(evts, evtBatchSize) == 0 && paused.get())
+                resumeContinuousQuery();
+
+            if (!evts.isEmpty()) {
+                for (BufferedEvent evt : evts) {
+                    if (evt.updCntr >= 0)
+                        injectedCntrs.merge(evt.evt.partition(), evt.updCntr, Math::max);
+
                     for (String topic : topics)
-                        records.add(new SourceRecord(srcPartition, offset, topic, null, evt));
+                        records.add(record(topic, evt));
                 }
 
                 return records;
@@ -178,6 +586,87 @@ public class IgniteSourceTask extends SourceTask {
         return null;
     }
 
+    /**
+     * @param topic Topic.
+     * @param evt Buffered event.
+     * @return Record of the event.
+     */
+    private SourceRecord record(String topic, BufferedEvent evt) {
+        Map<String, ?> part = srcPartition;
+        Map<String, ?> off = offset;
+
+        if (evt.updCntr >= 0) {
+            part = sourcePartition(cacheName, evt.evt.partition());
+            off = Collections.singletonMap(UPDATE_COUNTER_FIELD, evt.updCntr);
+        }
+
+        // schema and keys are ignored.
+        if (structConverter == null)
+            return new SourceRecord(part, off, topic, null, evt.evt);
+
+        SchemaAndValue key = structConverter.convert(evt.evt.key());
+
+        // Removals are emitted as tombstones.
+        SchemaAndValue val = evt.evt.type() == EventType.EVT_CACHE_OBJECT_REMOVED ||
+            evt.evt.type() == EventType.EVT_CACHE_OBJECT_EXPIRED ? SchemaAndValue.NULL :
+            structConverter.convert(evt.evt.newValue());
+
+        return new SourceRecord(part, off, topic, null, key.schema(), key.value(), val.schema(), val.value());
+    }
+
+    /**
+     * Takes the entries of the scanned partitions up to the batch size. The entries carry the committed counter of
+     * the partition, and the last one the counter taken at the start, so that the partition is scanned again after a
+     * failure unless all its entries are injected.
+     *
+     * @param evts Events to add the entries to.
+     */
+    private void pollInitialEntries(List<BufferedEvent> evts) {
+        ClusterNode locNode = ignite.cluster().localNode();
+
+        while (evts.size() < evtBatchSize) {
+            if (scanIter == null || !scanIter.hasNext()) {
+                closeScan();
+
+                Integer part = scanParts.poll();
+
+                if (part == null) {
+                    scanParts = null;
+
+                    return;
+                }
+
+                scanPart = part;
+                scanCur = scanCache.query(new ScanQuery<>(part));
+                scanIter = scanCur.iterator();
+
+                continue;
+            }
+
+            Cache.Entry<Object, Object> e = scanIter.next();
+
+            long cntr = scanIter.hasNext() ? scanFromCntrs.getOrDefault(scanPart, 0L) :
+                initCntrs.getOrDefault(scanPart, 0L);
+
+            CacheEvent evt = new CacheEvent(cacheName, locNode, null, "Initial scan query entry.",
+                EventType.EVT_CACHE_OBJECT_PUT, scanPart, false, e.getKey(), null, null, e.getValue(), true, null,
+                false, null, null, null);
+
+            evts.add(new BufferedEvent(evt, cntr));
+        }
+    }
+
+    /**
+     * Closes the scan query of the partition being injected.
+     */
+    private void closeScan() {
+        if (scanCur != null)
+            scanCur.close();
+
+        scanCur = null;
+        scanIter = null;
+    }
+
     /**
      * Converts comma-delimited cache events strings to Ignite internal representation.
      *
@@ -206,7 +695,7 @@ public class IgniteSourceTask extends SourceTask {
     }
 
     /**
-     * Stops the grid client.
+     * Stops the remote listener and releases the Ignite node.
      */
     @Override public synchronized void stop() {
         if (stopped)
@@ -214,44 +703,54 @@ public class IgniteSourceTask extends SourceTask {
 
         stopped = true;
 
-        stopRemoteListen();
-
-        IgniteGrid.getIgnite().close();
+        closeResources();
     }
 
     /**
-     * Stops the remote listener.
+     * Stops the remote listener or the continuous query, closes the event buffer and releases the Ignite node.
      */
-    protected void stopRemoteListen() {
-        if (rmtLsnrId != null)
-            IgniteGrid.getIgnite().events(IgniteGrid.getIgnite().cluster().forCacheNodes(cacheName))
-                .stopRemoteListen(rmtLsnrId);
+    private void closeResources() {
+        try {
+            if (rmtLsnrId != null)
+                ignite.events(ignite.cluster().forCacheNodes(cacheName)).stopRemoteListen(rmtLsnrId);
 
-        rmtLsnrId = null;
-    }
+            if (cqCur != null)
+                cqCur.close();
 
-    /**
-     * Used by unit test to avoid restart node and valid state of the <code>stopped</code> flag.
-     *
-     * @param stopped Stopped flag.
-     */
-    protected static void setStopped(boolean stopped) {
-        IgniteSourceTask.stopped = stopped;
+            closeScan();
+        }
+        catch (Exception e) {
+            log.error("Failed to stop capturing the cache events [cache=" + cacheName + ']', e);
+        }
+        finally {
+            rmtLsnrId = null;
+            cqCur = null;
+            scanCache = null;
+            scanParts = null;
+            scanFromCntrs = null;
+            initCntrs = null;
+
+            if (evtBuf != null)
+                evtBuf.close();
+
+            if (metrics != null)
+                metrics.unregister();
+
+            if (ignite != null) {
+                ignite = null;
+
+                IgniteNodeRegistry.release(igniteCfgFile);
+            }
+        }
     }
 
     /**
      * Local listener buffering cache events to be further sent to Kafka.
      */
-    private static class TaskLocalListener implements IgniteBiPredicate<UUID, CacheEvent> {
+    private class TaskLocalListener implements IgniteBiPredicate<UUID, CacheEvent> {
         /** {@inheritDoc} */
         @Override public boolean apply(UUID id, CacheEvent evt) {
-            try {
-                if (!evtBuf.offer(evt, 10, TimeUnit.MILLISECONDS))
-                    log.error("Failed to buffer event {}", evt.name());
-            }
-            catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            bufferEvent(new BufferedEvent(evt, -1));
 
             return true;
         }
@@ -268,15 +767,33 @@ public class IgniteSourceTask extends SourceTask {
         /** Cache name. */
         private final String cacheName;
 
+        /** User-defined filter, {@code null} if not configured. */
+        private final IgnitePredicate<CacheEvent> filter;
+
+        /** First partition of the task, inclusive. */
+        private final int partFrom;
+
+        /** Last partition of the task, exclusive. */
+        private final int partTo;
+
         /**
          * @param cacheName Cache name.
+         * @param filter User-defined filter, {@code null} if not configured.
+         * @param partFrom First partition of the task, inclusive.
+         * @param partTo Last partition of the task, exclusive.
          */
-        TaskRemoteFilter(String cacheName) {
+        TaskRemoteFilter(String cacheName, IgnitePredicate<CacheEvent> filter, int partFrom, int partTo) {
             this.cacheName = cacheName;
+            this.filter = filter;
+            this.partFrom = partFrom;
+            this.partTo = partTo;
         }
 
         /** {@inheritDoc} */
         @Override public boolean apply(CacheEvent evt) {
+            if (evt.partition() < partFrom || evt.partition() >= partTo)
+                return false;
+
             Affinity<Object> affinity = ignite.affinity(cacheName);
 
             if (affinity.isPrimary(ignite.cluster().localNode(), evt.key())) {
@@ -292,27 +809,125 @@ public class IgniteSourceTask extends SourceTask {
     }
 
     /**
-     * Grid instance initialized on demand.
+     * Remote filter of the continuous query. Continuous query events are delivered from the primary nodes only.
+     */
+    private static class TaskContinuousQueryFilter implements CacheEntryEventSerializableFilter<Object, Object> {
+        /** */
+        private static final long serialVersionUID = 0L;
+
+        /** */
+        @IgniteInstanceResource
+        private transient Ignite ignite;
+
+        /** Cache name. */
+        private final String cacheName;
+
+        /** Ignite internal representation of the cache events to capture. */
+        private final int[] evts;
+
+        /** User-defined filter, {@code null} if not configured. */
+        private final IgnitePredicate<CacheEvent> filter;
+
+        /** First partition of the task, inclusive. */
+        private final int partFrom;
+
+        /** Last partition of the task, exclusive. */
+        private final int partTo;
+
+        /**
+         * @param cacheName Cache name.
+         * @param evts Ignite internal representation of the cache events to capture.
+         * @param filter User-defined filter, {@code null} if not configured.
+         * @param partFrom First partition of the task, inclusive.
+         * @param partTo Last partition of the task, exclusive.
+         */
+        TaskContinuousQueryFilter(String cacheName, int[] evts, IgnitePredicate<CacheEvent> filter, int partFrom,
+            int partTo) {
+            this.cacheName = cacheName;
+            this.evts = evts;
+            this.filter = filter;
+            this.partFrom = partFrom;
+            this.partTo = partTo;
+        }
+
+        /** {@inheritDoc} */
+        @Override public boolean evaluate(CacheEntryEvent<?, ?> cqEvt) throws CacheEntryListenerException {
+            int part = ignite.affinity(cacheName).partition(cqEvt.getKey());
+
+            if (part < partFrom || part >= partTo)
+                return false;
+
+            int type = eventType(cqEvt);
+
+            for (int evt : evts) {
+                if (evt == type) {
+                    return filter == null ||
+                        !filter.apply(cacheEvent(ignite.cluster().localNode(), cacheName, part, cqEvt));
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Job collecting the update counters of the primary partitions of the node.
      */
-    private static class IgniteGrid {
-        /** Constructor. */
-        private IgniteGrid() {
-            // No-op.
+    private static class PartitionCountersJob implements IgniteCallable<Map<Integer, Long>> {
+        /** */
+        private static final long serialVersionUID = 0L;
+
+        /** */
+        @IgniteInstanceResource
+        private transient Ignite ignite;
+
+        /** Cache name. */
+        private final String cacheName;
+
+        /**
+         * @param cacheName Cache name.
+         */
+        PartitionCountersJob(String cacheName) {
+            this.cacheName = cacheName;
         }
 
-        /** Instance holder. */
-        private static class Holder {
-            /** */
-            private static final Ignite IGNITE = Ignition.start(igniteCfgFile);
+        /** {@inheritDoc} */
+        @Override public Map<Integer, Long> call() {
+            GridCacheContext<?, ?> cctx = ((IgniteEx)ignite).cachex(cacheName).context();
+
+            Map<Integer, Long> cntrs = new HashMap<>();
+
+            for (int p : ignite.affinity(cacheName).primaryPartitions(ignite.cluster().localNode())) {
+                GridDhtLocalPartition part = cctx.topology().localPartition(p);
+
+                if (part != null)
+                    cntrs.put(p, part.updateCounter());
+            }
+
+            return cntrs;
         }
+    }
+
+    /**
+     * Cache event buffered to be sent to Kafka.
+     */
+    private static class BufferedEvent implements Serializable {
+        /** */
+        private static final long serialVersionUID = 0L;
+
+        /** Cache event. */
+        private final CacheEvent evt;
+
+        /** Update counter of the partition, {@code -1} if unknown. */
+        private final long updCntr;
 
         /**
-         * Obtains grid instance.
-         *
-         * @return Grid instance.
+         * @param evt Cache event.
+         * @param updCntr Update counter of the partition, {@code -1} if unknown.
          */
-        private static Ignite getIgnite() {
-            return Holder.IGNITE;
+        BufferedEvent(CacheEvent evt, long updCntr) {
+            this.evt = evt;
+            this.updCntr = updCntr;
         }
     }
 
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.ignite.stream.kafka.connect.IgniteSinkTaskMetrics.MBEAN_DOMAIN;
+
+/**
+ * Metrics of an {@link IgniteSourceTask} registered as an MBean in the platform MBean server.
+ */
+class IgniteSourceTaskMetrics implements IgniteSourceTaskMetricsMXBean {
+    /** Logger. */
+    private static final Logger log = LoggerFactory.getLogger(IgniteSourceTaskMetrics.class);
+
+    /** Index of the task in the JVM. */
+    private static final AtomicInteger TASK_IDX = new AtomicInteger();
+
+    /** Event buffer. */
+    private final EventBuffer<?> buf;
+
+    /** Number of pauses. */
+    private final LongAdder pauses = new LongAdder();
+
+    /** MBean name, {@code null} if not registered. */
+    private ObjectName mbeanName;
+
+    /**
+     * @param buf Event buffer.
+     */
+    IgniteSourceTaskMetrics(EventBuffer<?> buf) {
+        this.buf = buf;
+    }
+
+    /**
+     * Registers the MBean.
+     *
+     * @param cacheName Cache name of the task.
+     * @param connName Connector name, {@code null} if unknown.
+     * @param taskId Index of the task assigned by the connector, {@code null} if not assigned.
+     */
+    void register(String cacheName, String connName, String taskId) {
+        // Task indexes are unique within a connector only.
+        String task = connName != null && taskId != null ? taskId : String.valueOf(TASK_IDX.incrementAndGet());
+
+        try {
+            ObjectName name = new ObjectName(MBEAN_DOMAIN + ":type=IgniteSourceTask,cache=" +
+                ObjectName.quote(cacheName) + (connName != null ? ",connector=" + ObjectName.quote(connName) : "") +
+                ",task=" + task);
+
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+
+            mbeanName = name;
+        }
+        catch (JMException e) {
+            log.warn("Failed to register source task metrics MBean [cache=" + cacheName + ']', e);
+        }
+    }
+
+    /** Unregisters the MBean. */
+    void unregister() {
+        if (mbeanName == null)
+            return;
+
+        MBeanServer srv = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            srv.unregisterMBean(mbeanName);
+        }
+        catch (JMException e) {
+            log.warn("Failed to unregister source task metrics MBean [name=" + mbeanName + ']', e);
+        }
+
+        mbeanName = null;
+    }
+
+    /** Callback for a pause of the continuous query. */
+    void onPause() {
+        pauses.increment();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getBufferedEvents() {
+        return buf.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override public int getBufferCapacity() {
+        return buf.capacity();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getBufferOverflows() {
+        return buf.overflows();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getDroppedEvents() {
+        return buf.dropped();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getSpilledEvents() {
+        return buf.spilled();
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getPauses() {
+        return pauses.sum();
+    }
+}
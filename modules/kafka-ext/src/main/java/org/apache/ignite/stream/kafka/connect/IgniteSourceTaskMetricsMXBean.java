@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import org.apache.ignite.mxbean.MXBeanDescription;
+
+/**
+ * MBean exposing metrics of an {@link IgniteSourceTask}.
+ */
+@MXBeanDescription("MBean that provides metrics of an Ignite source task.")
+public interface IgniteSourceTaskMetricsMXBean {
+    /**
+     * @return Number of events in the buffer including the spilled ones.
+     */
+    @MXBeanDescription("Number of events in the buffer including the spilled ones.")
+    public long getBufferedEvents();
+
+    /**
+     * @return Capacity of the event buffer.
+     */
+    @MXBeanDescription("Capacity of the event buffer.")
+    public int getBufferCapacity();
+
+    /**
+     * @return Number of events added to the full event buffer.
+     */
+    @MXBeanDescription("Number of events added to the full event buffer.")
+    public long getBufferOverflows();
+
+    /**
+     * @return Number of dropped events.
+     */
+    @MXBeanDescription("Number of dropped events.")
+    public long getDroppedEvents();
+
+    /**
+     * @return Number of events spilled to disk.
+     */
+    @MXBeanDescription("Number of events spilled to disk.")
+    public long getSpilledEvents();
+
+    /**
+     * @return Number of times the continuous query was paused because of the full event buffer.
+     */
+    @MXBeanDescription("Number of times the continuous query was paused because of the full event buffer.")
+    public long getPauses();
+}
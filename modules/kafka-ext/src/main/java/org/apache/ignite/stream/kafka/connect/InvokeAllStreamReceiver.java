@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import javax.cache.processor.MutableEntry;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.IgniteException;
+import org.apache.ignite.cache.CacheEntryProcessor;
+import org.apache.ignite.internal.util.typedef.internal.U;
+import org.apache.ignite.stream.StreamReceiver;
+
+/**
+ * Stream receiver applying an entry processor to the streamed entries with a single
+ * {@link IgniteCache#invokeAll(Map, Object...)} call per batch. As with
+ * {@link org.apache.ignite.stream.StreamTransformer}, the streamed value is passed to the processor as the first
+ * argument. If a batch contains several values of the same key, the processor is applied to them one after another
+ * in the order of streaming.
+ */
+public class InvokeAllStreamReceiver<K, V> implements StreamReceiver<K, V> {
+    /** */
+    private static final long serialVersionUID = 0L;
+
+    /** Entry processor. */
+    private final CacheEntryProcessor<K, V, Object> proc;
+
+    /**
+     * @param proc Entry processor.
+     */
+    public InvokeAllStreamReceiver(CacheEntryProcessor<K, V, Object> proc) {
+        this.proc = proc;
+    }
+
+    /** {@inheritDoc} */
+    @Override public void receive(IgniteCache<K, V> cache, Collection<Map.Entry<K, V>> entries)
+        throws IgniteException {
+        Map<K, BoundProcessor<K, V>> procs = U.newHashMap(entries.size());
+
+        for (Map.Entry<K, V> e : entries)
+            procs.computeIfAbsent(e.getKey(), k -> new BoundProcessor<>(proc)).add(e.getValue());
+
+        // Rethrows processing errors, which are returned in the results.
+        for (EntryProcessorResult<Object> res : cache.invokeAll(procs).values())
+            res.get();
+    }
+
+    /** Entry processor bound to the values streamed for a key. */
+    private static class BoundProcessor<K, V> implements CacheEntryProcessor<K, V, Object> {
+        /** */
+        private static final long serialVersionUID = 0L;
+
+        /** Entry processor. */
+        private final CacheEntryProcessor<K, V, Object> proc;
+
+        /** Streamed values in the order of streaming. */
+        private final List<V> vals = new ArrayList<>(1);
+
+        /**
+         * @param proc Entry processor.
+         */
+        BoundProcessor(CacheEntryProcessor<K, V, Object> proc) {
+            this.proc = proc;
+        }
+
+        /**
+         * @param val Streamed value.
+         */
+        void add(V val) {
+            vals.add(val);
+        }
+
+        /** {@inheritDoc} */
+        @Override public Object process(MutableEntry<K, V> entry, Object... args) throws EntryProcessorException {
+            Object res = null;
+
+            // The entry reflects the updates of the previous values.
+            for (V val : vals)
+                res = proc.process(entry, val);
+
+            return res;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.ignite.IgniteBinary;
+import org.apache.ignite.binary.BinaryObjectBuilder;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+/**
+ * Converts Connect {@link Struct}s into binary objects, so that records with schemas are stored in the cache as
+ * binary objects without user classes, and can be queried by SQL. Binary type names are taken from the schema names,
+ * unless a type name is configured. Nested structs without a schema name are named after the parent type and field.
+ * <p>
+ * Field mappings are cached per schema instance, which converters reuse for the records of the same schema version.
+ * The converter is not thread-safe.
+ */
+class StructToBinaryConverter {
+    /** Maximum number of cached schema mappings. */
+    private static final int MAX_CACHED_SCHEMAS = 1024;
+
+    /** Ignite binary. */
+    private final IgniteBinary binary;
+
+    /** Type name of the converted structs, or {@code null} to use the schema names. */
+    private final String typeName;
+
+    /** Type name of the converted structs without a schema name. */
+    private final String dfltTypeName;
+
+    /** Struct mappings by schema. */
+    private final Map<Schema, StructMapping> mappings = new IdentityHashMap<>();
+
+    /**
+     * @param binary Ignite binary.
+     * @param typeName Type name of the converted structs, or {@code null} to use the schema names.
+     * @param dfltTypeName Type name of the converted structs without a schema name.
+     */
+    StructToBinaryConverter(IgniteBinary binary, String typeName, String dfltTypeName) {
+        this.binary = binary;
+        this.typeName = typeName;
+        this.dfltTypeName = dfltTypeName;
+    }
+
+    /**
+     * Converts a record key or value. Values without a schema are returned as is.
+     *
+     * @param schema Schema.
+     * @param val Value.
+     * @return Converted value.
+     */
+    Object convert(Schema schema, Object val) {
+        if (schema == null || val == null)
+            return val;
+
+        String name = typeName != null ? typeName : schema.name() != null ? schema.name() : dfltTypeName;
+
+        return convert(schema, val, name);
+    }
+
+    /**
+     * @param schema Schema.
+     * @param val Value.
+     * @param name Type name of the struct.
+     * @return Converted value.
+     */
+    private Object convert(Schema schema, Object val, String name) {
+        if (val == null)
+            return null;
+
+        switch (schema.type()) {
+            case STRUCT:
+                return toBinary((Struct)val, name);
+
+            case ARRAY: {
+                List<?> list = (List<?>)val;
+
+                List<Object> res = new ArrayList<>(list.size());
+
+                for (Object item : list)
+                    res.add(convert(schema.valueSchema(), item, name));
+
+                return res;
+            }
+
+            case MAP: {
+                Map<?, ?> map = (Map<?, ?>)val;
+
+                Map<Object, Object> res = new HashMap<>();
+
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    res.put(convert(schema.keySchema(), e.getKey(), name + "Key"),
+                        convert(schema.valueSchema(), e.getValue(), name + "Value"));
+                }
+
+                return res;
+            }
+
+            case BYTES: {
+                if (!(val instanceof ByteBuffer))
+                    return val;
+
+                ByteBuffer buf = ((ByteBuffer)val).duplicate();
+
+                byte[] bytes = new byte[buf.remaining()];
+
+                buf.get(bytes);
+
+                return bytes;
+            }
+
+            default:
+                return val;
+        }
+    }
+
+    /**
+     * @param struct Struct.
+     * @param name Type name.
+     * @return Binary object.
+     */
+    private Object toBinary(Struct struct, String name) {
+        StructMapping mapping = mapping(struct.schema(), name);
+
+        BinaryObjectBuilder builder = binary.builder(mapping.typeName);
+
+        for (int i = 0; i < mapping.fields.length; i++) {
+            Field field = mapping.fields[i];
+
+            Object val = struct.get(field);
+
+            if (val != null)
+                builder.setField(field.name(), convert(field.schema(), val, mapping.nestedTypeNames[i]));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * @param schema Struct schema.
+     * @param name Type name.
+     * @return Struct mapping.
+     */
+    private StructMapping mapping(Schema schema, String name) {
+        StructMapping mapping = mappings.get(schema);
+
+        if (mapping == null) {
+            if (mappings.size() >= MAX_CACHED_SCHEMAS)
+                mappings.clear();
+
+            mapping = new StructMapping(schema, name);
+
+            mappings.put(schema, mapping);
+        }
+
+        return mapping;
+    }
+
+    /** Mapping of a struct schema to a binary type. */
+    private static class StructMapping {
+        /** Binary type name. */
+        private final String typeName;
+
+        /** Struct fields. */
+        private final Field[] fields;
+
+        /** Type names of the nested structs by field. */
+        private final String[] nestedTypeNames;
+
+        /**
+         * @param schema Struct schema.
+         * @param typeName Binary type name.
+         */
+        StructMapping(Schema schema, String typeName) {
+            this.typeName = typeName;
+
+            fields = schema.fields().toArray(new Field[0]);
+
+            nestedTypeNames = new String[fields.length];
+
+            for (int i = 0; i < fields.length; i++) {
+                String name = fields[i].schema().name();
+
+                nestedTypeNames[i] = name != null ? name : typeName + '.' + fields[i].name();
+            }
+        }
+    }
+}
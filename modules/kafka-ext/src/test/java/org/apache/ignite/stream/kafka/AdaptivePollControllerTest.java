@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.ignite.testframework.junits.common.GridCommonAbstractTest;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AdaptivePollController}.
+ */
+public class AdaptivePollControllerTest extends GridCommonAbstractTest {
+    /** Minimal batch size. */
+    private static final int MIN_BATCH_SIZE = 10;
+
+    /** Maximal batch size. */
+    private static final int MAX_BATCH_SIZE = 30;
+
+    /** Minimal poll timeout. */
+    private static final long MIN_TIMEOUT = 5;
+
+    /** Maximal poll timeout. */
+    private static final long MAX_TIMEOUT = 50;
+
+    /** Latency threshold in milliseconds. */
+    private static final long LATENCY_THRESHOLD = 100;
+
+    /** {@code addData} time below the latency threshold. */
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(LATENCY_THRESHOLD / 2);
+
+    /** {@code addData} time above the latency threshold. */
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(LATENCY_THRESHOLD * 2);
+
+    /**
+     * Tests that the batch size grows additively while full batches are added fast, up to the maximum.
+     */
+    @Test
+    public void testBatchSizeGrowth() {
+        AdaptivePollController ctrl = controller();
+
+        assertEquals(MIN_BATCH_SIZE, ctrl.batchSize());
+
+        ctrl.onAddData(MIN_BATCH_SIZE, FAST);
+
+        assertEquals(12, ctrl.batchSize());
+
+        // Batches smaller than the current size do not show that the data streamer keeps up with larger ones.
+        ctrl.onAddData(5, FAST);
+
+        assertEquals(12, ctrl.batchSize());
+
+        ctrl.onAddData(12, FAST);
+        ctrl.onAddData(15, FAST);
+        ctrl.onAddData(18, FAST);
+        ctrl.onAddData(22, FAST);
+
+        assertEquals(27, ctrl.batchSize());
+
+        ctrl.onAddData(27, FAST);
+
+        assertEquals(MAX_BATCH_SIZE, ctrl.batchSize());
+
+        ctrl.onAddData(MAX_BATCH_SIZE, FAST);
+
+        assertEquals(MAX_BATCH_SIZE, ctrl.batchSize());
+    }
+
+    /**
+     * Tests that the batch size is halved when {@code addData} latency exceeds the threshold, down to the minimum.
+     */
+    @Test
+    public void testBatchSizeShrink() {
+        AdaptivePollController ctrl = controller();
+
+        for (int i = 0; i < 10; i++)
+            ctrl.onAddData(ctrl.batchSize(), FAST);
+
+        assertEquals(MAX_BATCH_SIZE, ctrl.batchSize());
+
+        ctrl.onAddData(MAX_BATCH_SIZE, SLOW);
+
+        assertEquals(MAX_BATCH_SIZE / 2, ctrl.batchSize());
+
+        ctrl.onAddData(1, SLOW);
+
+        assertEquals(MIN_BATCH_SIZE, ctrl.batchSize());
+
+        ctrl.onAddData(MIN_BATCH_SIZE, SLOW);
+
+        assertEquals(MIN_BATCH_SIZE, ctrl.batchSize());
+    }
+
+    /**
+     * Tests that the poll timeout doubles while polls return no records, up to the maximum, and falls back to the
+     * minimum once records arrive.
+     */
+    @Test
+    public void testTimeout() {
+        AdaptivePollController ctrl = controller();
+
+        assertEquals(MIN_TIMEOUT, ctrl.timeout());
+        assertEquals(MAX_TIMEOUT, ctrl.maxTimeout());
+
+        ctrl.onPoll(0);
+
+        assertEquals(MIN_TIMEOUT * 2, ctrl.timeout());
+
+        ctrl.onPoll(0);
+        ctrl.onPoll(0);
+
+        assertEquals(MIN_TIMEOUT * 8, ctrl.timeout());
+
+        ctrl.onPoll(0);
+
+        assertEquals(MAX_TIMEOUT, ctrl.timeout());
+
+        ctrl.onPoll(0);
+
+        assertEquals(MAX_TIMEOUT, ctrl.timeout());
+
+        ctrl.onPoll(1);
+
+        assertEquals(MIN_TIMEOUT, ctrl.timeout());
+    }
+
+    /**
+     * @return Controller.
+     */
+    private AdaptivePollController controller() {
+        return new AdaptivePollController(MIN_BATCH_SIZE, MAX_BATCH_SIZE, MIN_TIMEOUT, MAX_TIMEOUT,
+            LATENCY_THRESHOLD);
+    }
+}
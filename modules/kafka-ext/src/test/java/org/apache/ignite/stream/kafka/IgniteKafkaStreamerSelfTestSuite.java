@@ -17,6 +17,7 @@
 
 package org.apache.ignite.stream.kafka;
 
+import org.apache.ignite.stream.kafka.connect.EventBufferTest;
 import org.apache.ignite.stream.kafka.connect.IgniteSinkConnectorTest;
 import org.apache.ignite.stream.kafka.connect.IgniteSourceConnectorTest;
 import org.junit.runner.RunWith;
@@ -29,10 +30,12 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     // Kafka streamer.
     KafkaIgniteStreamerSelfTest.class,
+    AdaptivePollControllerTest.class,
 
     // Kafka streamers via Connect API.
     IgniteSinkConnectorTest.class,
-    IgniteSourceConnectorTest.class
+    IgniteSourceConnectorTest.class,
+    EventBufferTest.class
 })
 public class IgniteKafkaStreamerSelfTestSuite {
 }
@@ -17,32 +17,66 @@
 
 package org.apache.ignite.stream.kafka;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.IgniteDataStreamer;
+import org.apache.ignite.IgniteException;
 import org.apache.ignite.IgniteLogger;
+import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.configuration.IgniteConfiguration;
 import org.apache.ignite.events.CacheEvent;
 import org.apache.ignite.events.EventType;
 import org.apache.ignite.internal.IgniteEx;
+import org.apache.ignite.internal.IgniteInternalFuture;
+import org.apache.ignite.internal.binary.BinaryObjectImpl;
 import org.apache.ignite.internal.util.typedef.internal.A;
+import org.apache.ignite.internal.util.typedef.internal.U;
 import org.apache.ignite.lang.IgniteBiPredicate;
 import org.apache.ignite.resources.IgniteInstanceResource;
 import org.apache.ignite.resources.LoggerResource;
+import org.apache.ignite.spi.metric.LongMetric;
+import org.apache.ignite.spi.metric.Metric;
+import org.apache.ignite.spi.metric.ReadOnlyMetricRegistry;
+import org.apache.ignite.testframework.GridTestUtils;
 import org.apache.ignite.testframework.junits.common.GridCommonAbstractTest;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.Test;
 
@@ -110,7 +144,767 @@ public class KafkaIgniteStreamerSelfTest extends GridCommonAbstractTest {
 
         Map<String, String> keyValMap = produceStream(TOPIC_NAME);
 
-        consumerStream(TOPIC_NAME, keyValMap);
+        consumerStream(TOPIC_NAME, keyValMap, kafkaStmr -> {});
+    }
+
+    /**
+     * Tests Kafka streamer in batch mode. Checks that consumer offsets are committed after the data is streamed.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerBatchMode() throws Exception {
+        embeddedBroker.createTopic(TOPIC_NAME, PARTITIONS, REPLICATION_FACTOR);
+
+        Map<String, String> keyValMap = produceStream(TOPIC_NAME);
+
+        consumerStream(TOPIC_NAME, keyValMap, kafkaStmr -> kafkaStmr.setBatchMode(true));
+
+        assertTrue(GridTestUtils.waitForCondition(() -> committedOffsets(TOPIC_NAME, "groupX") == CNT, 10_000));
+    }
+
+    /**
+     * Tests Kafka streamer in pipelined mode with low watermarks, so that consumers are paused and resumed.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerPipelinedMode() throws Exception {
+        embeddedBroker.createTopic(TOPIC_NAME, PARTITIONS, REPLICATION_FACTOR);
+
+        Map<String, String> keyValMap = produceStream(TOPIC_NAME);
+
+        consumerStream(TOPIC_NAME, keyValMap, kafkaStmr -> {
+            kafkaStmr.setBatchMode(true);
+            kafkaStmr.setPipelineWorkers(2);
+            kafkaStmr.setPipelineWatermarks(1, 2);
+        });
+
+        assertTrue(GridTestUtils.waitForCondition(() -> committedOffsets(TOPIC_NAME, "groupX") == CNT, 10_000));
+    }
+
+    /**
+     * Tests that consumers are paused and resumed by the back-pressure of a slow ingest worker in pipelined mode, and
+     * that batches of a partition are ingested in the order of polling when several workers are configured.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerPipelineBackPressure() throws Exception {
+        TopicPartition part = new TopicPartition(TOPIC_NAME, 0);
+
+        TestConsumer consumer = new TestConsumer(Collections.singleton(part));
+
+        int batches = 5;
+        int batchSize = 5;
+
+        for (int i = 0; i < batches; i++)
+            consumer.send(part, i * batchSize, batchSize);
+
+        IgniteDataStreamer<String, String> stmr = grid().dataStreamer(DEFAULT_CACHE_NAME);
+
+        stmr.allowOverwrite(true);
+        stmr.autoFlushFrequency(10);
+
+        KafkaStreamer<String, String> kafkaStmr = startMockStreamer(consumer, stmr, kafkaStmr0 -> {
+            kafkaStmr0.setBatchMode(true);
+            kafkaStmr0.setPipelineWorkers(2);
+            kafkaStmr0.setPipelineWatermarks(0, 1);
+
+            // Slow extractor updating the same key, so that the last ingested batch defines the value.
+            kafkaStmr0.setSingleTupleExtractor(record -> {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+
+                return new AbstractMap.SimpleEntry<>("key", (String)record.value());
+            });
+        });
+
+        try {
+            String lastVal = "val" + (batches * batchSize - 1);
+
+            assertTrue(GridTestUtils.waitForCondition(() -> consumer.committed(part) != null &&
+                consumer.committed(part).offset() == batches * batchSize, 10_000));
+
+            assertEquals(lastVal, grid().cache(DEFAULT_CACHE_NAME).get("key"));
+
+            LongMetric pauses = streamerMetric("PipelinePauses");
+
+            assertNotNull(pauses);
+            assertTrue(pauses.value() > 0);
+
+            assertTrue(GridTestUtils.waitForCondition(() -> consumer.paused().isEmpty(), 10_000));
+        }
+        finally {
+            kafkaStmr.stop();
+
+            stmr.close();
+        }
+    }
+
+    /**
+     * Tests Kafka streamer with a custom thread factory.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerThreadFactory() throws Exception {
+        embeddedBroker.createTopic(TOPIC_NAME, PARTITIONS, REPLICATION_FACTOR);
+
+        Map<String, String> keyValMap = produceStream(TOPIC_NAME);
+
+        AtomicInteger threadCnt = new AtomicInteger();
+
+        consumerStream(TOPIC_NAME, keyValMap, kafkaStmr -> kafkaStmr.setThreadFactory(r -> {
+            threadCnt.incrementAndGet();
+
+            return new Thread(r, "kafka-streamer-test");
+        }));
+
+        assertEquals(4, threadCnt.get());
+    }
+
+    /**
+     * Tests Kafka streamer in adaptive polling mode.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerAdaptivePolling() throws Exception {
+        embeddedBroker.createTopic(TOPIC_NAME, PARTITIONS, REPLICATION_FACTOR);
+
+        Map<String, String> keyValMap = produceStream(TOPIC_NAME);
+
+        consumerStream(TOPIC_NAME, keyValMap, kafkaStmr -> {
+            kafkaStmr.setBatchMode(true);
+            kafkaStmr.setAdaptivePolling(true);
+            kafkaStmr.setAdaptiveBatchSize(10, 50);
+            kafkaStmr.setAdaptiveTimeout(10, 200);
+        });
+
+        assertTrue(GridTestUtils.waitForCondition(() -> committedOffsets(TOPIC_NAME, "groupX") == CNT, 10_000));
+    }
+
+    /**
+     * Tests that records failed to be extracted are passed to the failure handler.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerFailureHandler() throws Exception {
+        embeddedBroker.createTopic(TOPIC_NAME, PARTITIONS, REPLICATION_FACTOR);
+
+        Map<String, String> keyValMap = produceStream(TOPIC_NAME);
+
+        Set<String> failedKeys = ConcurrentHashMap.newKeySet();
+
+        consumerStream(TOPIC_NAME, keyValMap, kafkaStmr -> {
+            kafkaStmr.setMultipleTupleExtractor(null);
+            kafkaStmr.setSingleTupleExtractor(record -> {
+                if (((String)record.key()).endsWith("0"))
+                    throw new IllegalArgumentException("Test extraction failure.");
+
+                return new AbstractMap.SimpleEntry<>((String)record.key(), (String)record.value());
+            });
+
+            // Failed records are put into the cache by the handler, so that the stream is verified as a whole.
+            kafkaStmr.setFailureHandler((ConsumerRecord<?, ?> record, Throwable err) -> {
+                failedKeys.add((String)record.key());
+
+                grid().cache(DEFAULT_CACHE_NAME).put(record.key(), record.value());
+
+                return true;
+            });
+        });
+
+        assertEquals(CNT / 10, failedKeys.size());
+    }
+
+    /**
+     * Tests that offsets of a failed batch are not committed and the consumer is rewound to the batch, if the failure
+     * handler does not take its records.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerFailedBatchConsumedAgain() throws Exception {
+        checkFailedBatch(false);
+    }
+
+    /**
+     * Tests that offsets of a failed batch are committed if the failure handler takes its records.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerFailedBatchTakenByHandler() throws Exception {
+        checkFailedBatch(true);
+    }
+
+    /**
+     * @param taken Whether the failure handler takes the failed records.
+     * @throws Exception If failed.
+     */
+    private void checkFailedBatch(boolean taken) throws Exception {
+        TopicPartition part = new TopicPartition(TOPIC_NAME, 0);
+
+        TestConsumer consumer = new TestConsumer(Collections.singleton(part));
+
+        AtomicInteger failed = new AtomicInteger();
+
+        IgniteDataStreamer<String, String> stmr = grid().dataStreamer(DEFAULT_CACHE_NAME);
+
+        // Batches fail, as the data streamer is closed.
+        stmr.close();
+
+        KafkaStreamer<String, String> kafkaStmr = startMockStreamer(consumer, stmr, kafkaStmr0 -> {
+            kafkaStmr0.setBatchMode(true);
+            kafkaStmr0.setRetryBackoff(10);
+            kafkaStmr0.setFailureHandler((record, err) -> {
+                failed.incrementAndGet();
+
+                return taken;
+            });
+        });
+
+        try {
+            consumer.send(part, 0, 10);
+
+            assertTrue(GridTestUtils.waitForCondition(() -> failed.get() >= 10, 10_000));
+
+            if (taken) {
+                assertTrue(GridTestUtils.waitForCondition(() -> consumer.committed(part) != null &&
+                    consumer.committed(part).offset() == 10, 10_000));
+            }
+            else {
+                assertTrue(GridTestUtils.waitForCondition(() -> consumer.position(part) == 0, 10_000));
+
+                assertNull(consumer.committed(part));
+            }
+        }
+        finally {
+            kafkaStmr.stop();
+        }
+    }
+
+    /**
+     * Tests that the default failure handler skips a batch failed to be streamed once the retries are used up.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerFailedBatchSkippedByDefault() throws Exception {
+        TopicPartition part = new TopicPartition(TOPIC_NAME, 0);
+
+        TestConsumer consumer = new TestConsumer(Collections.singleton(part));
+
+        IgniteDataStreamer<String, String> stmr = grid().dataStreamer(DEFAULT_CACHE_NAME);
+
+        // Batches fail, as the data streamer is closed.
+        stmr.close();
+
+        KafkaStreamer<String, String> kafkaStmr = startMockStreamer(consumer, stmr, kafkaStmr0 -> {
+            kafkaStmr0.setBatchMode(true);
+            kafkaStmr0.setRetries(1);
+            kafkaStmr0.setRetryBackoff(10);
+        });
+
+        try {
+            consumer.send(part, 0, 10);
+
+            assertTrue(GridTestUtils.waitForCondition(() -> consumer.committed(part) != null &&
+                consumer.committed(part).offset() == 10, 10_000));
+
+            LongMetric failures = streamerMetric("FailedBatches");
+
+            assertNotNull(failures);
+            assertEquals(1, failures.value());
+        }
+        finally {
+            kafkaStmr.stop();
+        }
+    }
+
+    /**
+     * Tests that the dead-letter failure handler takes a record only once it is acknowledged by the dead-letter topic.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testDeadLetterFailureHandler() throws Exception {
+        MockProducer<Object, Object> producer = new MockProducer<>(false, null, null);
+
+        DeadLetterRecordFailureHandler hnd = new DeadLetterRecordFailureHandler("dead-letters", new Properties()) {
+            @Override protected Producer<Object, Object> createProducer(Properties cfg) {
+                return producer;
+            }
+        };
+
+        hnd.start();
+
+        try {
+            ConsumerRecord<String, String> record = new ConsumerRecord<>(TOPIC_NAME, 0, 0, "key", "val");
+
+            IgniteInternalFuture<Boolean> fut = GridTestUtils.runAsync(
+                () -> hnd.onFailure(record, new IgniteException("Test failure.")));
+
+            assertTrue(GridTestUtils.waitForCondition(() -> producer.history().size() == 1, 10_000));
+
+            assertFalse(fut.isDone());
+
+            producer.errorNext(new KafkaException("Test send failure."));
+
+            assertFalse(fut.get(10_000));
+
+            fut = GridTestUtils.runAsync(() -> hnd.onFailure(record, new IgniteException("Test failure.")));
+
+            assertTrue(GridTestUtils.waitForCondition(() -> producer.history().size() == 2, 10_000));
+
+            producer.completeNext();
+
+            assertTrue(fut.get(10_000));
+
+            assertEquals("val", producer.history().get(1).value());
+        }
+        finally {
+            hnd.stop();
+        }
+    }
+
+    /**
+     * Tests that records accumulated in adaptive polling mode are consumed again together with a failed batch, if the
+     * failure handler does not take its records.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerRewindAccumulated() throws Exception {
+        TopicPartition part0 = new TopicPartition(TOPIC_NAME, 0);
+        TopicPartition part1 = new TopicPartition(TOPIC_NAME, 1);
+
+        TestConsumer consumer = new TestConsumer(Arrays.asList(part0, part1));
+
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        try (IgniteDataStreamer<String, String> stmr = grid().dataStreamer(DEFAULT_CACHE_NAME)) {
+            // Records of another partition are accumulated while the failed batch is retried.
+            IgniteDataStreamer<String, String> failingStmr = failingStreamer(stmr, () -> {
+                if (calls.incrementAndGet() == 2)
+                    consumer.send(part1, 0, 1);
+
+                return true;
+            });
+
+            KafkaStreamer<String, String> kafkaStmr = startMockStreamer(consumer, failingStmr, kafkaStmr0 -> {
+                kafkaStmr0.setBatchMode(true);
+                kafkaStmr0.setAdaptivePolling(true);
+                kafkaStmr0.setAdaptiveBatchSize(100, 100);
+                kafkaStmr0.setAdaptiveTimeout(10, 10_000);
+                kafkaStmr0.setRetries(1);
+                kafkaStmr0.setRetryBackoff(10);
+                kafkaStmr0.setFailureHandler((record, err) -> {
+                    failed.incrementAndGet();
+
+                    return false;
+                });
+            });
+
+            try {
+                consumer.send(part0, 0, 10);
+
+                assertTrue(GridTestUtils.waitForCondition(() -> failed.get() >= 10, 10_000));
+
+                assertTrue(GridTestUtils.waitForCondition(
+                    () -> consumer.position(part0) == 0 && consumer.position(part1) == 0, 10_000));
+
+                assertNull(consumer.committed(part0));
+                assertNull(consumer.committed(part1));
+            }
+            finally {
+                kafkaStmr.stop();
+            }
+        }
+    }
+
+    /**
+     * Tests that a rewound partition is paused for the retry backoff, while the other partitions are streamed.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerRewindBackoff() throws Exception {
+        TopicPartition part0 = new TopicPartition(TOPIC_NAME, 0);
+        TopicPartition part1 = new TopicPartition(TOPIC_NAME, 1);
+
+        TestConsumer consumer = new TestConsumer(Arrays.asList(part0, part1));
+
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        try (IgniteDataStreamer<String, String> stmr = grid().dataStreamer(DEFAULT_CACHE_NAME)) {
+            stmr.autoFlushFrequency(10);
+
+            KafkaStreamer<String, String> kafkaStmr = startMockStreamer(consumer,
+                failingStreamer(stmr, () -> calls.incrementAndGet() == 1), kafkaStmr0 -> {
+                    kafkaStmr0.setBatchMode(true);
+                    kafkaStmr0.setRetryBackoff(10_000);
+                    kafkaStmr0.setFailureHandler((record, err) -> {
+                        failed.incrementAndGet();
+
+                        return false;
+                    });
+                });
+
+            try {
+                consumer.send(part0, 0, 10);
+
+                assertTrue(GridTestUtils.waitForCondition(() -> failed.get() == 10, 10_000));
+
+                consumer.send(part1, 10, 10);
+
+                assertTrue(GridTestUtils.waitForCondition(() -> consumer.committed(part1) != null &&
+                    consumer.committed(part1).offset() == 20, 5_000));
+
+                assertTrue(consumer.paused().contains(part0));
+                assertEquals(0, consumer.position(part0));
+                assertNull(consumer.committed(part0));
+            }
+            finally {
+                kafkaStmr.stop();
+            }
+        }
+    }
+
+    /**
+     * Tests that the failed batches of the partitions remaining assigned are consumed again, if the pending batches
+     * are drained before revocation of other partitions.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerRewindOnDrain() throws Exception {
+        TopicPartition part0 = new TopicPartition(TOPIC_NAME, 0);
+        TopicPartition part1 = new TopicPartition(TOPIC_NAME, 1);
+
+        TestConsumer consumer = new TestConsumer(Arrays.asList(part0, part1));
+
+        AtomicInteger failed = new AtomicInteger();
+
+        try (IgniteDataStreamer<String, String> stmr = grid().dataStreamer(DEFAULT_CACHE_NAME)) {
+            KafkaStreamer<String, String> kafkaStmr = startMockStreamer(consumer, failingStreamer(stmr, () -> true),
+                kafkaStmr0 -> {
+                    kafkaStmr0.setBatchMode(true);
+                    kafkaStmr0.setRetries(1);
+                    kafkaStmr0.setRetryBackoff(1000);
+                    kafkaStmr0.setFailureHandler((record, err) -> {
+                        failed.incrementAndGet();
+
+                        return false;
+                    });
+                });
+
+            try {
+                consumer.send(part1, 0, 10);
+
+                assertTrue(GridTestUtils.waitForCondition(() -> consumer.position(part1) == 10, 10_000));
+
+                // The failed batch is pending until its retry, when partitions are revoked.
+                consumer.revoke(Collections.singleton(part0));
+
+                assertTrue(GridTestUtils.waitForCondition(() -> !consumer.assignment().contains(part0), 10_000));
+
+                assertEquals(10, failed.get());
+                assertEquals(0, consumer.position(part1));
+                assertNull(consumer.committed(part1));
+            }
+            finally {
+                kafkaStmr.stop();
+            }
+        }
+    }
+
+    /**
+     * Tests that offsets of the revoked partitions are not committed if their batches fail to be flushed before
+     * revocation.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerRevokeFlushFailure() throws Exception {
+        TopicPartition part0 = new TopicPartition(TOPIC_NAME, 0);
+        TopicPartition part1 = new TopicPartition(TOPIC_NAME, 1);
+
+        TestConsumer consumer = new TestConsumer(Arrays.asList(part0, part1));
+
+        AtomicInteger failed = new AtomicInteger();
+
+        IgniteDataStreamer<String, String> stmr = grid().dataStreamer(DEFAULT_CACHE_NAME);
+
+        // Batches fail, as the data streamer is closed.
+        stmr.close();
+
+        KafkaStreamer<String, String> kafkaStmr = startMockStreamer(consumer, stmr, kafkaStmr0 -> {
+            kafkaStmr0.setBatchMode(true);
+            kafkaStmr0.setRetries(1);
+            kafkaStmr0.setRetryBackoff(1000);
+            kafkaStmr0.setFailureHandler((record, err) -> {
+                failed.incrementAndGet();
+
+                return true;
+            });
+        });
+
+        try {
+            consumer.send(part0, 0, 10);
+
+            assertTrue(GridTestUtils.waitForCondition(() -> consumer.position(part0) == 10, 10_000));
+
+            // The failed batch is pending until its retry, when partitions are revoked.
+            consumer.revoke(Collections.singleton(part0));
+
+            assertTrue(GridTestUtils.waitForCondition(() -> !consumer.assignment().contains(part0), 10_000));
+
+            // The batch would be retried and taken by the failure handler by now, if it were not discarded.
+            U.sleep(2500);
+
+            assertEquals(0, failed.get());
+            assertNull(consumer.committed(part0));
+        }
+        finally {
+            kafkaStmr.stop();
+        }
+    }
+
+    /**
+     * Tests that positions are committed before partitions are revoked in non-batch mode with auto-commit enabled.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerRevokeAutoCommit() throws Exception {
+        checkRevokeCommit(true);
+    }
+
+    /**
+     * Tests that positions are not committed before partitions are revoked in non-batch mode with auto-commit
+     * disabled.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerRevokeNoAutoCommit() throws Exception {
+        checkRevokeCommit(false);
+    }
+
+    /**
+     * @param autoCommit Whether auto-commit is enabled in the consumer config.
+     * @throws Exception If failed.
+     */
+    private void checkRevokeCommit(boolean autoCommit) throws Exception {
+        TopicPartition part0 = new TopicPartition(TOPIC_NAME, 0);
+        TopicPartition part1 = new TopicPartition(TOPIC_NAME, 1);
+
+        TestConsumer consumer = new TestConsumer(Arrays.asList(part0, part1));
+
+        Properties consumerCfg = new Properties();
+
+        consumerCfg.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, String.valueOf(autoCommit));
+
+        try (IgniteDataStreamer<String, String> stmr = grid().dataStreamer(DEFAULT_CACHE_NAME)) {
+            stmr.autoFlushFrequency(10);
+
+            KafkaStreamer<String, String> kafkaStmr = startMockStreamer(consumer, stmr,
+                kafkaStmr0 -> kafkaStmr0.setConsumerConfig(consumerCfg));
+
+            try {
+                consumer.send(part0, 0, 10);
+
+                assertTrue(GridTestUtils.waitForCondition(
+                    () -> grid().cache(DEFAULT_CACHE_NAME).get(KEY_PREFIX + 9) != null, 10_000));
+
+                consumer.revoke(Collections.singleton(part0));
+
+                assertTrue(GridTestUtils.waitForCondition(() -> !consumer.assignment().contains(part0), 10_000));
+
+                if (autoCommit)
+                    assertEquals(10, consumer.committed(part0).offset());
+                else
+                    assertNull(consumer.committed(part0));
+            }
+            finally {
+                kafkaStmr.stop();
+            }
+        }
+    }
+
+    /**
+     * Tests that binary objects are streamed as is in binary pass-through mode, and records with {@code null} or
+     * malformed values are passed to the failure handler.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerBinaryPassThrough() throws Exception {
+        TopicPartition part = new TopicPartition(TOPIC_NAME, 0);
+
+        TestConsumer consumer = new TestConsumer(Collections.singleton(part));
+
+        Set<String> failedKeys = ConcurrentHashMap.newKeySet();
+
+        BinaryObject val = grid().binary().builder("TestValue").setField("name", "val").build();
+
+        byte[] bytes = ((BinaryObjectImpl)val).array();
+
+        List<ConsumerRecord<String, Object>> records = new ArrayList<>();
+
+        records.add(new ConsumerRecord<>(TOPIC_NAME, 0, 0, "valid", bytes));
+        records.add(new ConsumerRecord<>(TOPIC_NAME, 0, 1, "null", null));
+        records.add(new ConsumerRecord<>(TOPIC_NAME, 0, 2, "truncated", Arrays.copyOf(bytes, bytes.length - 1)));
+        records.add(new ConsumerRecord<>(TOPIC_NAME, 0, 3, "string", "val".getBytes()));
+
+        IgniteCache<String, BinaryObject> cache = grid().cache(DEFAULT_CACHE_NAME).withKeepBinary();
+
+        cache.put("null", val);
+
+        try (IgniteDataStreamer<String, BinaryObject> stmr = grid().dataStreamer(DEFAULT_CACHE_NAME)) {
+            stmr.allowOverwrite(true);
+            stmr.autoFlushFrequency(10);
+
+            KafkaStreamer<String, BinaryObject> kafkaStmr = startMockStreamer(consumer, stmr, kafkaStmr0 -> {
+                kafkaStmr0.setBinaryPassThrough(true);
+                kafkaStmr0.setFailureHandler((record, err) -> {
+                    failedKeys.add((String)record.key());
+
+                    return true;
+                });
+            });
+
+            try {
+                consumer.send(records);
+
+                assertTrue(GridTestUtils.waitForCondition(() -> cache.get("valid") != null, 10_000));
+                assertTrue(GridTestUtils.waitForCondition(() -> failedKeys.size() == 3, 10_000));
+            }
+            finally {
+                kafkaStmr.stop();
+            }
+        }
+
+        assertEquals("val", cache.get("valid").field("name"));
+        assertEquals(val, cache.get("null"));
+        assertNull(cache.get("truncated"));
+        assertNull(cache.get("string"));
+        assertEquals(new HashSet<>(Arrays.asList("null", "truncated", "string")), failedKeys);
+    }
+
+    /**
+     * Tests that lag metrics are registered for topics with dots in their names, and removed when partitions are
+     * revoked.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testKafkaStreamerLagMetrics() throws Exception {
+        TopicPartition part = new TopicPartition("page.visits", 0);
+
+        Map<String, String> tags = new HashMap<>();
+
+        tags.put("topic", part.topic());
+        tags.put("partition", String.valueOf(part.partition()));
+
+        MetricName name = new MetricName("records-lag", "consumer-fetch-manager-metrics", "", tags);
+
+        org.apache.kafka.common.Metric lag = new org.apache.kafka.common.Metric() {
+            @Override public MetricName metricName() {
+                return name;
+            }
+
+            @Override public double value() {
+                return 42;
+            }
+
+            @Override public Object metricValue() {
+                return 42.0;
+            }
+        };
+
+        MockConsumer<String, String> consumer = new MockConsumer<String, String>(OffsetResetStrategy.EARLIEST) {
+            @Override public synchronized Map<MetricName, ? extends org.apache.kafka.common.Metric> metrics() {
+                return Collections.singletonMap(name, lag);
+            }
+        };
+
+        KafkaStreamerMetrics metrics = new KafkaStreamerMetrics(grid(), "lag-test");
+
+        try {
+            metrics.updateLags(consumer);
+
+            LongMetric lagMetric = streamerMetric("Lag.page_visits.0");
+
+            assertNotNull(lagMetric);
+            assertEquals(42, lagMetric.value());
+
+            metrics.removeLags(Collections.singleton(part));
+
+            assertNull(streamerMetric("Lag.page_visits.0"));
+        }
+        finally {
+            metrics.unregister();
+        }
+    }
+
+    /**
+     * Starts Kafka streamer consuming records from the mock consumer.
+     *
+     * @param consumer Consumer.
+     * @param stmr Data streamer.
+     * @param stmrCfg Additional Kafka streamer configuration.
+     * @return Started Kafka streamer.
+     */
+    @SuppressWarnings("unchecked")
+    private <V> KafkaStreamer<String, V> startMockStreamer(TestConsumer consumer,
+        IgniteDataStreamer<String, V> stmr, Consumer<KafkaStreamer<String, V>> stmrCfg) {
+        KafkaStreamer<String, V> kafkaStmr = new KafkaStreamer<String, V>() {
+            @Override protected org.apache.kafka.clients.consumer.Consumer<?, ?> createConsumer(Properties cfg) {
+                return consumer;
+            }
+        };
+
+        kafkaStmr.setIgnite(grid());
+        kafkaStmr.setStreamer(stmr);
+        kafkaStmr.setTopic(Collections.singletonList(TOPIC_NAME));
+        kafkaStmr.setThreads(1);
+        kafkaStmr.setConsumerConfig(new Properties());
+        kafkaStmr.setSingleTupleExtractor(
+            record -> new AbstractMap.SimpleEntry<>((String)record.key(), (V)record.value()));
+
+        stmrCfg.accept(kafkaStmr);
+
+        kafkaStmr.start();
+
+        return kafkaStmr;
+    }
+
+    /**
+     * @param stmr Data streamer to delegate to.
+     * @param fail Called on each {@code addData} call, returns whether the call fails.
+     * @return Data streamer failing {@code addData} calls.
+     */
+    @SuppressWarnings("unchecked")
+    private static IgniteDataStreamer<String, String> failingStreamer(IgniteDataStreamer<String, String> stmr,
+        BooleanSupplier fail) {
+        return (IgniteDataStreamer<String, String>)Proxy.newProxyInstance(IgniteDataStreamer.class.getClassLoader(),
+            new Class<?>[] {IgniteDataStreamer.class}, (proxy, mtd, args) -> {
+                if ("addData".equals(mtd.getName()) && fail.getAsBoolean())
+                    throw new IgniteException("Test addData failure.");
+
+                try {
+                    return mtd.invoke(stmr, args);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
     }
 
     /**
@@ -154,11 +948,12 @@ public class KafkaIgniteStreamerSelfTest extends GridCommonAbstractTest {
      *
      * @param topic Topic name.
      * @param keyValMap Expected key value map.
+     * @param stmrCfg Additional Kafka streamer configuration.
      * @throws TimeoutException If timed out.
      * @throws InterruptedException If interrupted.
      */
-    private void consumerStream(String topic, Map<String, String> keyValMap)
-        throws TimeoutException, InterruptedException {
+    private void consumerStream(String topic, Map<String, String> keyValMap,
+        Consumer<KafkaStreamer<String, String>> stmrCfg) throws TimeoutException, InterruptedException {
         KafkaStreamer<String, String> kafkaStmr = null;
 
         Ignite ignite = grid();
@@ -208,6 +1003,8 @@ public class KafkaIgniteStreamerSelfTest extends GridCommonAbstractTest {
                     return entries;
                 });
 
+            stmrCfg.accept(kafkaStmr);
+
             // Start kafka streamer.
             kafkaStmr.start();
 
@@ -244,6 +1041,13 @@ public class KafkaIgniteStreamerSelfTest extends GridCommonAbstractTest {
 
             for (Map.Entry<String, String> entry : keyValMap.entrySet())
                 assertEquals(entry.getValue(), cache.get(entry.getKey()));
+
+            LongMetric recordsIn = streamerMetric("RecordsIn");
+
+            assertNotNull(recordsIn);
+
+            // Records may be consumed more than once if partitions are reassigned.
+            assertTrue(recordsIn.value() >= CNT);
         }
         finally {
             if (kafkaStmr != null)
@@ -251,6 +1055,44 @@ public class KafkaIgniteStreamerSelfTest extends GridCommonAbstractTest {
         }
     }
 
+    /**
+     * Finds a metric of the running Kafka streamer.
+     *
+     * @param name Metric name.
+     * @return Metric or {@code null} if not found.
+     */
+    private <M extends Metric> M streamerMetric(String name) {
+        for (ReadOnlyMetricRegistry reg : grid().context().metric()) {
+            if (reg.name().startsWith(KafkaStreamerMetrics.KAFKA_STREAMER_METRICS))
+                return reg.findMetric(name);
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the sum of committed offsets over all partitions of the topic.
+     *
+     * @param topic Topic name.
+     * @param grpId Consumer group id.
+     * @return Sum of committed offsets.
+     */
+    private long committedOffsets(String topic, String grpId) {
+        try (KafkaConsumer<String, String> consumer =
+                 new KafkaConsumer<>(createDefaultConsumerConfig(embeddedBroker.getBrokerAddress(), grpId))) {
+            long sum = 0;
+
+            for (int part = 0; part < PARTITIONS; part++) {
+                OffsetAndMetadata off = consumer.committed(new TopicPartition(topic, part));
+
+                if (off != null)
+                    sum += off.offset();
+            }
+
+            return sum;
+        }
+    }
+
     /**
      * Creates default consumer config.
      *
@@ -272,4 +1114,111 @@ public class KafkaIgniteStreamerSelfTest extends GridCommonAbstractTest {
 
         return props;
     }
+
+    /** Mock consumer assigned the given partitions on subscription. */
+    private static class TestConsumer extends MockConsumer<String, Object> {
+        /** Partitions assigned on subscription. */
+        private final Collection<TopicPartition> parts;
+
+        /** Rebalance listener. */
+        private volatile ConsumerRebalanceListener lsnr;
+
+        /** Batches of records returned by the next polls, one batch per poll. */
+        private final Queue<List<ConsumerRecord<String, Object>>> batches = new ConcurrentLinkedQueue<>();
+
+        /**
+         * @param parts Partitions assigned on subscription.
+         */
+        TestConsumer(Collection<TopicPartition> parts) {
+            super(OffsetResetStrategy.EARLIEST);
+
+            this.parts = parts;
+
+            Map<TopicPartition, Long> offsets = new HashMap<>();
+
+            for (TopicPartition part : parts)
+                offsets.put(part, 0L);
+
+            updateBeginningOffsets(offsets);
+        }
+
+        /**
+         * Makes the records available to a following poll.
+         *
+         * @param part Partition.
+         * @param from Offset of the first record.
+         * @param cnt Number of records.
+         */
+        void send(TopicPartition part, long from, int cnt) {
+            List<ConsumerRecord<String, Object>> batch = new ArrayList<>(cnt);
+
+            for (long off = from; off < from + cnt; off++)
+                batch.add(new ConsumerRecord<>(part.topic(), part.partition(), off, KEY_PREFIX + off, "val" + off));
+
+            send(batch);
+        }
+
+        /**
+         * Makes the records available to a following poll.
+         *
+         * @param batch Records.
+         */
+        void send(List<ConsumerRecord<String, Object>> batch) {
+            batches.add(batch);
+        }
+
+        /**
+         * Revokes the partitions on the next poll, notifying the rebalance listener like a Kafka consumer does.
+         *
+         * @param revoked Partitions to revoke.
+         */
+        void revoke(Collection<TopicPartition> revoked) {
+            schedulePollTask(() -> {
+                lsnr.onPartitionsRevoked(revoked);
+
+                Map<TopicPartition, Long> remaining = new HashMap<>();
+
+                for (TopicPartition part : assignment()) {
+                    if (!revoked.contains(part))
+                        remaining.put(part, position(part));
+                }
+
+                rebalance(remaining.keySet());
+
+                // Partitions remaining assigned keep their positions.
+                remaining.forEach(this::seek);
+            });
+        }
+
+        /** {@inheritDoc} */
+        @Override public synchronized void subscribe(Collection<String> topics, ConsumerRebalanceListener lsnr) {
+            super.subscribe(topics, lsnr);
+
+            this.lsnr = lsnr;
+
+            rebalance(parts);
+        }
+
+        /** {@inheritDoc} */
+        @Override public ConsumerRecords<String, Object> poll(long timeout) {
+            List<ConsumerRecord<String, Object>> batch = batches.peek();
+
+            // Records of paused partitions would be dropped by the mock consumer.
+            if (batch != null && batch.stream().noneMatch(
+                record -> paused().contains(new TopicPartition(record.topic(), record.partition())))) {
+                batches.poll();
+
+                for (ConsumerRecord<String, Object> record : batch)
+                    addRecord(record);
+            }
+
+            ConsumerRecords<String, Object> records = super.poll(timeout);
+
+            // Mock consumer does not wait for records.
+            if (records.isEmpty())
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+
+            return records;
+        }
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.stream.kafka.connect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.apache.ignite.internal.IgniteInternalFuture;
+import org.apache.ignite.testframework.GridTestUtils;
+import org.apache.ignite.testframework.junits.common.GridCommonAbstractTest;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EventBuffer}.
+ */
+public class EventBufferTest extends GridCommonAbstractTest {
+    /** Buffer capacity. */
+    private static final int CAP = 4;
+
+    /**
+     * Tests that the producer is blocked until the consumer takes an event.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testBlock() throws Exception {
+        EventBuffer<Integer> buf = new EventBuffer<>(CAP, EventBuffer.OverflowPolicy.BLOCK, null);
+
+        for (int i = 0; i < CAP; i++)
+            assertTrue(buf.add(i));
+
+        CountDownLatch added = new CountDownLatch(1);
+
+        IgniteInternalFuture<?> fut = GridTestUtils.runAsync(() -> {
+            buf.add(CAP);
+
+            added.countDown();
+        });
+
+        assertFalse(GridTestUtils.waitForCondition(() -> added.getCount() == 0, 500));
+
+        assertEquals(0, (int)buf.poll());
+
+        fut.get(5_000);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4), drain(buf));
+        assertEquals(1, buf.overflows());
+        assertEquals(0, buf.dropped());
+    }
+
+    /**
+     * Tests that the oldest events are dropped.
+     */
+    @Test
+    public void testDropOldest() {
+        EventBuffer<Integer> buf = new EventBuffer<>(CAP, EventBuffer.OverflowPolicy.DROP_OLDEST, null);
+
+        for (int i = 0; i < CAP + 2; i++)
+            assertTrue(buf.add(i));
+
+        assertEquals(CAP, buf.size());
+        assertEquals(Arrays.asList(2, 3, 4, 5), drain(buf));
+        assertEquals(2, buf.overflows());
+        assertEquals(2, buf.dropped());
+    }
+
+    /**
+     * Tests that the events are spilled to disk and taken in the order of adding.
+     */
+    @Test
+    public void testSpill() {
+        EventBuffer<Integer> buf = new EventBuffer<>(CAP, EventBuffer.OverflowPolicy.SPILL, null);
+
+        for (int i = 0; i < CAP * 3; i++)
+            assertTrue(buf.add(i));
+
+        assertEquals(CAP * 3, buf.size());
+        assertEquals(CAP * 2, buf.spilled());
+
+        List<Integer> evts = new ArrayList<>();
+
+        buf.drainTo(evts, CAP + 1);
+
+        // Events are spilled until the spilled ones are taken.
+        for (int i = CAP * 3; i < CAP * 4; i++)
+            assertTrue(buf.add(i));
+
+        evts.addAll(drain(buf));
+
+        for (int i = 0; i < CAP * 4; i++)
+            assertEquals(i, (int)evts.get(i));
+
+        assertEquals(0, buf.size());
+        assertEquals(0, buf.dropped());
+
+        buf.close();
+    }
+
+    /**
+     * Tests that the events added to the full buffer are rejected.
+     */
+    @Test
+    public void testPause() {
+        EventBuffer<Integer> buf = new EventBuffer<>(CAP, EventBuffer.OverflowPolicy.PAUSE, null);
+
+        for (int i = 0; i < CAP; i++)
+            assertTrue(buf.add(i));
+
+        assertFalse(buf.add(CAP));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3), drain(buf));
+        assertEquals(1, buf.overflows());
+    }
+
+    /**
+     * Tests that the events of concurrent producers are neither lost nor duplicated.
+     *
+     * @throws Exception If failed.
+     */
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        int producers = 4;
+        int evtsPerProducer = 10_000;
+
+        EventBuffer<Integer> buf = new EventBuffer<>(64, EventBuffer.OverflowPolicy.BLOCK, null);
+
+        IgniteInternalFuture<?> fut = GridTestUtils.runMultiThreadedAsync(() -> {
+            for (int i = 0; i < evtsPerProducer; i++)
+                buf.add(i);
+        }, producers, "producer");
+
+        long[] cnts = new long[evtsPerProducer];
+
+        int taken = 0;
+
+        while (taken < producers * evtsPerProducer) {
+            Integer evt = buf.poll();
+
+            if (evt != null) {
+                cnts[evt]++;
+
+                taken++;
+            }
+        }
+
+        fut.get(10_000);
+
+        for (long cnt : cnts)
+            assertEquals(producers, cnt);
+
+        assertNull(buf.poll());
+    }
+
+    /**
+     * @param buf Buffer.
+     * @return Events taken from the buffer.
+     */
+    private static List<Integer> drain(EventBuffer<Integer> buf) {
+        List<Integer> evts = new ArrayList<>();
+
+        buf.drainTo(evts, Integer.MAX_VALUE);
+
+        return evts;
+    }
+}
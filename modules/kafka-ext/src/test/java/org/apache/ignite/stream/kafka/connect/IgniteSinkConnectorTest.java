@@ -17,26 +17,47 @@
 
 package org.apache.ignite.stream.kafka.connect;
 
-import java.lang.reflect.Field;
+import java.lang.management.ManagementFactory;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import javax.cache.processor.MutableEntry;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
+import org.apache.ignite.IgniteException;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.cache.CacheEntryProcessor;
 import org.apache.ignite.cache.CachePeekMode;
 import org.apache.ignite.configuration.IgniteConfiguration;
 import org.apache.ignite.events.Event;
+import org.apache.ignite.internal.util.typedef.F;
 import org.apache.ignite.lang.IgnitePredicate;
+import org.apache.ignite.stream.StreamReceiver;
 import org.apache.ignite.stream.StreamSingleTupleExtractor;
 import org.apache.ignite.stream.kafka.TestKafkaBroker;
+import org.apache.ignite.testframework.GridTestUtils;
 import org.apache.ignite.testframework.junits.common.GridCommonAbstractTest;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.utils.SystemTime;
 import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.runtime.ConnectorConfig;
 import org.apache.kafka.connect.runtime.Herder;
 import org.apache.kafka.connect.runtime.Worker;
@@ -47,6 +68,7 @@ import org.apache.kafka.connect.runtime.standalone.StandaloneConfig;
 import org.apache.kafka.connect.runtime.standalone.StandaloneHerder;
 import org.apache.kafka.connect.sink.SinkConnector;
 import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
 import org.apache.kafka.connect.storage.OffsetBackingStore;
 import org.apache.kafka.connect.util.Callback;
 import org.apache.kafka.connect.util.ConnectUtils;
@@ -54,7 +76,11 @@ import org.apache.kafka.connect.util.FutureCallback;
 import org.junit.Test;
 
 import static org.apache.ignite.events.EventType.EVT_CACHE_OBJECT_PUT;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.mock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 
 /**
  * Tests for {@link IgniteSinkConnector}.
@@ -66,6 +92,9 @@ public class IgniteSinkConnectorTest extends GridCommonAbstractTest {
     /** Cache name. */
     private static final String CACHE_NAME = "testCache";
 
+    /** Cache name of the second connector. */
+    private static final String CACHE_NAME_2 = "testCache2";
+
     /** Test topics. */
     private static final String[] TOPICS = {"sink-test1", "sink-test2"};
 
@@ -120,11 +149,7 @@ public class IgniteSinkConnectorTest extends GridCommonAbstractTest {
 
         grid.cache(CACHE_NAME).removeAll();
 
-        // reset cache name to overwrite task configurations.
-        Field field = IgniteSinkTask.class.getDeclaredField("cacheName");
-
-        field.setAccessible(true);
-        field.set(IgniteSinkTask.class, null);
+        grid.destroyCache(CACHE_NAME_2);
     }
 
     /** {@inheritDoc} */
@@ -156,6 +181,818 @@ public class IgniteSinkConnectorTest extends GridCommonAbstractTest {
         testSinkPuts(makeSinkProps(Utils.join(TOPICS, ",")), true);
     }
 
+    /**
+     * Tests that connectors streaming to different caches run within one worker.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testMultipleConnectors() throws Exception {
+        grid.getOrCreateCache(CACHE_NAME_2);
+
+        Map<String, String> sinkProps = makeSinkProps(TOPICS[0]);
+
+        Map<String, String> sinkProps2 = makeSinkProps(TOPICS[1]);
+
+        sinkProps2.put(ConnectorConfig.NAME_CONFIG, "test-sink-connector-2");
+        sinkProps2.put(IgniteSinkConstants.CACHE_NAME, CACHE_NAME_2);
+
+        for (Map<String, String> props : Arrays.asList(sinkProps, sinkProps2)) {
+            props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+
+            FutureCallback<Herder.Created<ConnectorInfo>> cb = new FutureCallback<>();
+
+            herder.putConnectorConfig(props.get(ConnectorConfig.NAME_CONFIG), props, false, cb);
+
+            cb.get();
+        }
+
+        Map<String, String> keyValMap = produceStream(TOPICS[0], false);
+
+        Map<String, String> keyValMap2 = produceStream(TOPICS[1], false);
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        IgniteCache<String, String> cache2 = grid.cache(CACHE_NAME_2);
+
+        assertTrue(GridTestUtils.waitForCondition(() -> cache.size(CachePeekMode.PRIMARY) == EVENT_CNT &&
+            cache2.size(CachePeekMode.PRIMARY) == EVENT_CNT, 10_000));
+
+        for (Map.Entry<String, String> entry : keyValMap.entrySet())
+            assertEquals(entry.getValue(), cache.get(entry.getKey()));
+
+        for (Map.Entry<String, String> entry : keyValMap2.entrySet())
+            assertEquals(entry.getValue(), cache2.get(entry.getKey()));
+    }
+
+    /**
+     * Tests that a task in exactly-once mode resumes from the offsets stored in Ignite and skips applied records.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testExactlyOnce() throws Exception {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.EXACTLY_ONCE, "true");
+
+        TopicPartition part = new TopicPartition(TOPICS[0], 0);
+
+        SinkTaskContext ctx = createNiceMock(SinkTaskContext.class);
+
+        replay(ctx);
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.initialize(ctx);
+        task.start(props);
+        task.open(Collections.singleton(part));
+        task.put(sinkRecords(part, 0, 10, "v1"));
+        task.flush(Collections.singletonMap(part, new OffsetAndMetadata(10)));
+        task.stop();
+
+        ctx = createNiceMock(SinkTaskContext.class);
+
+        ctx.offset(Collections.singletonMap(part, 10L));
+
+        expectLastCall();
+
+        replay(ctx);
+
+        task = new IgniteSinkTask();
+
+        task.initialize(ctx);
+        task.start(props);
+        task.open(Collections.singleton(part));
+
+        verify(ctx);
+
+        // Replayed records are skipped.
+        task.put(sinkRecords(part, 5, 15, "v2"));
+        task.flush(Collections.singletonMap(part, new OffsetAndMetadata(15)));
+        task.stop();
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        for (int i = 0; i < 15; i++)
+            assertEquals(i < 10 ? "v1" : "v2", cache.get(String.valueOf(i)));
+
+        grid.destroyCache(IgniteSinkTask.DFLT_OFFSETS_CACHE_NAME);
+    }
+
+    /**
+     * Tests that connectors writing the same topic into the same cache in exactly-once mode keep their own offsets.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testExactlyOnceConnectorsIsolated() throws Exception {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.EXACTLY_ONCE, "true");
+
+        TopicPartition part = new TopicPartition(TOPICS[0], 0);
+
+        SinkTaskContext ctx = createNiceMock(SinkTaskContext.class);
+
+        replay(ctx);
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.initialize(ctx);
+        task.start(props);
+        task.open(Collections.singleton(part));
+        task.put(sinkRecords(part, 0, 10, "v1"));
+        task.flush(Collections.singletonMap(part, new OffsetAndMetadata(10)));
+        task.stop();
+
+        props.put(ConnectorConfig.NAME_CONFIG, "test-sink-connector-2");
+
+        // No offset is expected to be reset for the other connector.
+        ctx = mock(SinkTaskContext.class);
+
+        replay(ctx);
+
+        task = new IgniteSinkTask();
+
+        task.initialize(ctx);
+        task.start(props);
+        task.open(Collections.singleton(part));
+
+        verify(ctx);
+
+        task.put(sinkRecords(part, 0, 5, "v2"));
+        task.flush(Collections.singletonMap(part, new OffsetAndMetadata(5)));
+        task.stop();
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        for (int i = 0; i < 10; i++)
+            assertEquals(i < 5 ? "v2" : "v1", cache.get(String.valueOf(i)));
+
+        grid.destroyCache(IgniteSinkTask.DFLT_OFFSETS_CACHE_NAME);
+    }
+
+    /**
+     * Tests that a task in asynchronous flush mode commits the offsets of the records completed by the data streamer.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testAsyncFlush() throws Exception {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.ASYNC_FLUSH, "true");
+
+        TopicPartition part = new TopicPartition(TOPICS[0], 0);
+
+        Map<TopicPartition, OffsetAndMetadata> curOffsets = Collections.singletonMap(part, new OffsetAndMetadata(10));
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            task.put(sinkRecords(part, 0, 10, "v"));
+
+            Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+
+            assertTrue(GridTestUtils.waitForCondition(() -> {
+                committed.putAll(task.preCommit(curOffsets));
+
+                return curOffsets.equals(committed);
+            }, 10_000));
+
+            IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+            for (int i = 0; i < 10; i++)
+                assertEquals("v", cache.get(String.valueOf(i)));
+
+            IgniteSinkTaskMetricsMXBean metrics =
+                taskMetrics(new ObjectName(IgniteSinkTaskMetrics.MBEAN_DOMAIN + ":type=IgniteSinkTask,*"));
+
+            // Commits are timed as flushes in asynchronous flush mode.
+            assertTrue(LongStream.of(metrics.getFlushTimeHistogram()).sum() > 0);
+        }
+        finally {
+            task.stop();
+        }
+    }
+
+    /**
+     * Tests that a task in asynchronous flush mode does not commit the offsets of a failed batch and fails on the next
+     * put.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testAsyncFlushFailure() throws Exception {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.ASYNC_FLUSH, "true");
+        props.put(IgniteSinkConstants.STREAM_RECEIVER, FailingReceiver.class.getName());
+
+        TopicPartition part = new TopicPartition(TOPICS[0], 0);
+
+        Map<TopicPartition, OffsetAndMetadata> curOffsets = Collections.singletonMap(part, new OffsetAndMetadata(10));
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            task.put(sinkRecords(part, 0, 10, "v"));
+
+            assertTrue(GridTestUtils.waitForCondition(() -> {
+                assertTrue(task.preCommit(curOffsets).isEmpty());
+
+                try {
+                    task.put(Collections.emptyList());
+
+                    return false;
+                }
+                catch (ConnectException ignored) {
+                    return true;
+                }
+            }, 10_000));
+
+            // The failed batch is not retried on the following commits.
+            assertTrue(task.preCommit(curOffsets).isEmpty());
+
+            GridTestUtils.assertThrows(log, () -> {
+                task.put(sinkRecords(part, 10, 20, "v"));
+
+                return null;
+            }, ConnectException.class, null);
+        }
+        finally {
+            task.stop();
+        }
+    }
+
+    /**
+     * Tests that the last value of a key wins if keys are de-duplicated.
+     */
+    @Test
+    public void testDeduplicateKeys() {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.DEDUPLICATE_KEYS, "true");
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            List<SinkRecord> records = new ArrayList<>();
+
+            for (int i = 0; i < 30; i++)
+                records.add(new SinkRecord(TOPICS[0], 0, null, String.valueOf(i % 10), null, "v" + i, i));
+
+            task.put(records);
+            task.flush(Collections.emptyMap());
+
+            IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+            assertEquals(10, cache.size(CachePeekMode.PRIMARY));
+
+            for (int i = 0; i < 10; i++)
+                assertEquals("v" + (i + 20), cache.get(String.valueOf(i)));
+        }
+        finally {
+            task.stop();
+        }
+    }
+
+    /**
+     * Tests that record values with struct schemas are stored as binary objects.
+     */
+    @Test
+    public void testStructToBinary() {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.STRUCT_TO_BINARY, "true");
+
+        Schema addrSchema = SchemaBuilder.struct()
+            .field("city", Schema.STRING_SCHEMA)
+            .build();
+
+        Schema personSchema = SchemaBuilder.struct().name("Person")
+            .field("name", Schema.STRING_SCHEMA)
+            .field("age", Schema.INT32_SCHEMA)
+            .field("address", addrSchema)
+            .build();
+
+        Struct person = new Struct(personSchema)
+            .put("name", "John")
+            .put("age", 30)
+            .put("address", new Struct(addrSchema).put("city", "London"));
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            task.put(Collections.singleton(
+                new SinkRecord(TOPICS[0], 0, Schema.STRING_SCHEMA, "1", personSchema, person, 0)));
+            task.flush(Collections.emptyMap());
+        }
+        finally {
+            task.stop();
+        }
+
+        BinaryObject val = grid.cache(CACHE_NAME).<String, BinaryObject>withKeepBinary().get("1");
+
+        assertEquals("Person", val.type().typeName());
+        assertEquals("John", val.field("name"));
+        assertEquals(30, (int)val.field("age"));
+
+        BinaryObject addr = val.field("address");
+
+        assertEquals("Person.address", addr.type().typeName());
+        assertEquals("London", addr.field("city"));
+    }
+
+    /**
+     * Tests that the streamed values are merged on the server side by the batched entry processor receiver.
+     */
+    @Test
+    public void testInvokeAllStreamReceiver() {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.STREAM_RECEIVER, "invokeAll");
+        props.put(IgniteSinkConstants.STREAM_RECEIVER_FUNCTION_CLASS, AppendProcessor.class.getName());
+
+        TopicPartition part = new TopicPartition(TOPICS[0], 0);
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            task.put(sinkRecords(part, 0, 10, "a"));
+            task.flush(Collections.emptyMap());
+
+            task.put(sinkRecords(part, 0, 10, "b"));
+            task.flush(Collections.emptyMap());
+        }
+        finally {
+            task.stop();
+        }
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        for (int i = 0; i < 10; i++)
+            assertEquals("ab", cache.get(String.valueOf(i)));
+    }
+
+    /**
+     * Tests that the batched entry processor receiver applies all the values of a key streamed in one batch in order.
+     */
+    @Test
+    public void testInvokeAllStreamReceiverDuplicateKeys() {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.STREAM_RECEIVER, "invokeAll");
+        props.put(IgniteSinkConstants.STREAM_RECEIVER_FUNCTION_CLASS, AppendProcessor.class.getName());
+
+        List<SinkRecord> records = new ArrayList<>();
+
+        for (int i = 0; i < 30; i++)
+            records.add(new SinkRecord(TOPICS[0], 0, null, String.valueOf(i % 10), null, String.valueOf(i / 10), i));
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            task.put(records);
+            task.flush(Collections.emptyMap());
+        }
+        finally {
+            task.stop();
+        }
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        for (int i = 0; i < 10; i++)
+            assertEquals("012", cache.get(String.valueOf(i)));
+    }
+
+    /**
+     * Tests that tombstones are removed in the order of the records if the data streamer may not overwrite data.
+     */
+    @Test
+    public void testRemoveTombstones() {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE, "false");
+        props.put(IgniteSinkConstants.CACHE_REMOVE_TOMBSTONES, "true");
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        for (int i = 0; i < 10; i++)
+            cache.put(String.valueOf(i), "v");
+
+        List<SinkRecord> records = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++)
+            records.add(new SinkRecord(TOPICS[0], 0, null, String.valueOf(i), null, null, i));
+
+        // Update followed by removal of the same key.
+        records.add(new SinkRecord(TOPICS[0], 0, null, "10", null, "v", 5));
+        records.add(new SinkRecord(TOPICS[0], 0, null, "10", null, null, 6));
+
+        // Removal followed by update of the same key.
+        records.add(new SinkRecord(TOPICS[0], 0, null, "11", null, null, 7));
+        records.add(new SinkRecord(TOPICS[0], 0, null, "11", null, "v", 8));
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            task.put(records);
+            task.flush(Collections.emptyMap());
+        }
+        finally {
+            task.stop();
+        }
+
+        for (int i = 0; i < 10; i++)
+            assertEquals(i < 5 ? null : "v", cache.get(String.valueOf(i)));
+
+        assertNull(cache.get("10"));
+        assertEquals("v", cache.get("11"));
+    }
+
+    /**
+     * Tests that tombstones are removed instead of being passed to the custom stream receiver as {@code null} values.
+     */
+    @Test
+    public void testRemoveTombstonesStreamReceiver() {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.STREAM_RECEIVER, "invokeAll");
+        props.put(IgniteSinkConstants.STREAM_RECEIVER_FUNCTION_CLASS, AppendProcessor.class.getName());
+        props.put(IgniteSinkConstants.CACHE_REMOVE_TOMBSTONES, "true");
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        for (int i = 0; i < 10; i++)
+            cache.put(String.valueOf(i), "a");
+
+        List<SinkRecord> records = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++)
+            records.add(new SinkRecord(TOPICS[0], 0, null, String.valueOf(i), null, null, i));
+
+        // Update followed by removal and update of the same key.
+        records.add(new SinkRecord(TOPICS[0], 0, null, "5", null, "b", 5));
+        records.add(new SinkRecord(TOPICS[0], 0, null, "5", null, null, 6));
+        records.add(new SinkRecord(TOPICS[0], 0, null, "5", null, "c", 7));
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            task.put(records);
+            task.flush(Collections.emptyMap());
+        }
+        finally {
+            task.stop();
+        }
+
+        for (int i = 0; i < 10; i++)
+            assertEquals(i < 5 ? null : i == 5 ? "c" : "a", cache.get(String.valueOf(i)));
+    }
+
+    /**
+     * Tests that a tombstone does not precede an update of the same key buffered by the previous put.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testRemoveTombstonesAcrossPuts() throws Exception {
+        checkRemoveTombstonesAcrossPuts(false);
+    }
+
+    /**
+     * Tests that a tombstone does not precede an update of the same key buffered by the previous put in asynchronous
+     * flush mode.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testRemoveTombstonesAcrossPutsAsyncFlush() throws Exception {
+        checkRemoveTombstonesAcrossPuts(true);
+    }
+
+    /**
+     * @param asyncFlush Asynchronous flush flag.
+     * @throws Exception if failed.
+     */
+    private void checkRemoveTombstonesAcrossPuts(boolean asyncFlush) throws Exception {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE, "false");
+        props.put(IgniteSinkConstants.CACHE_REMOVE_TOMBSTONES, "true");
+        props.put(IgniteSinkConstants.ASYNC_FLUSH, String.valueOf(asyncFlush));
+
+        TopicPartition part = new TopicPartition(TOPICS[0], 0);
+
+        Map<TopicPartition, OffsetAndMetadata> curOffsets = Collections.singletonMap(part, new OffsetAndMetadata(20));
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            task.put(sinkRecords(part, 0, 10, "v"));
+
+            List<SinkRecord> tombstones = new ArrayList<>();
+
+            for (int i = 0; i < 10; i++) {
+                tombstones.add(
+                    new SinkRecord(part.topic(), part.partition(), null, String.valueOf(i), null, null, i + 10));
+            }
+
+            task.put(tombstones);
+
+            if (asyncFlush) {
+                Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+
+                assertTrue(GridTestUtils.waitForCondition(() -> {
+                    committed.putAll(task.preCommit(curOffsets));
+
+                    return curOffsets.equals(committed);
+                }, 10_000));
+            }
+            else
+                task.flush(curOffsets);
+        }
+        finally {
+            task.stop();
+        }
+
+        assertEquals(0, grid.cache(CACHE_NAME).size(CachePeekMode.PRIMARY));
+    }
+
+    /**
+     * Tests that a task in thin client mode writes the data without starting an Ignite node, and removes tombstones.
+     */
+    @Test
+    public void testThinClient() {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.remove(IgniteSinkConstants.CACHE_CFG_PATH);
+        props.put(IgniteSinkConstants.THIN_CLIENT_ADDRESSES, "127.0.0.1:10800");
+
+        TopicPartition part = new TopicPartition(TOPICS[0], 0);
+
+        List<SinkRecord> records = new ArrayList<>(sinkRecords(part, 0, 10, "v"));
+
+        records.add(new SinkRecord(part.topic(), part.partition(), null, "0", null, null, 10));
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            // No node joins the topology.
+            assertEquals(1, grid.cluster().nodes().size());
+
+            task.put(records);
+            task.flush(Collections.emptyMap());
+        }
+        finally {
+            task.stop();
+        }
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        for (int i = 0; i < 10; i++)
+            assertEquals(i == 0 ? null : "v", cache.get(String.valueOf(i)));
+    }
+
+    /**
+     * Tests that a task in thin client mode fails to start if options requiring an Ignite node are configured.
+     */
+    @Test
+    public void testThinClientStreamerOptions() {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.CACHE_CFG_PATH);
+        props.put(IgniteSinkConstants.THIN_CLIENT_ADDRESSES, "127.0.0.1:10800");
+
+        for (String opt : Arrays.asList(IgniteSinkConstants.CACHE_PER_NODE_DATA_SIZE,
+            IgniteSinkConstants.CACHE_AUTO_FLUSH_FREQ, IgniteSinkConstants.STREAM_RECEIVER,
+            IgniteSinkConstants.PRIMARY_LOCALITY_METRICS)) {
+            Map<String, String> optProps = new HashMap<>(props);
+
+            optProps.put(opt, "1");
+
+            GridTestUtils.assertThrows(log, () -> {
+                new IgniteSinkTask().start(optProps);
+
+                return null;
+            }, ConnectException.class, null);
+        }
+
+        props.put(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE, "false");
+
+        GridTestUtils.assertThrows(log, () -> {
+            new IgniteSinkTask().start(props);
+
+            return null;
+        }, ConnectException.class, null);
+    }
+
+    /**
+     * Tests the task metrics MBean.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testMetrics() throws Exception {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+
+        TopicPartition part = new TopicPartition(TOPICS[0], 0);
+
+        List<SinkRecord> records = new ArrayList<>(sinkRecords(part, 0, 10, "v"));
+
+        records.add(new SinkRecord(part.topic(), part.partition(), null, null, null, "v", 10));
+
+        // Sizes of the key and the value are 2 and 3 bytes in UTF-8.
+        records.add(new SinkRecord(part.topic(), part.partition(), null, "\u00e9", null, "\u20ac", 11));
+
+        ObjectName pattern = new ObjectName(IgniteSinkTaskMetrics.MBEAN_DOMAIN + ":type=IgniteSinkTask,*");
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            task.put(records);
+            task.flush(Collections.emptyMap());
+
+            IgniteSinkTaskMetricsMXBean metrics = taskMetrics(pattern);
+
+            assertEquals(12, metrics.getRecordsPut());
+            assertEquals(1, metrics.getNullKeyDrops());
+            assertEquals(1, LongStream.of(metrics.getFlushTimeHistogram()).sum());
+            assertEquals(10 * 2 + 1 + 5, metrics.getBytesEstimated());
+            assertTrue(GridTestUtils.waitForCondition(() -> metrics.getInFlightEntries() == 0, 10_000));
+        }
+        finally {
+            task.stop();
+        }
+
+        assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(pattern, null).isEmpty());
+    }
+
+    /**
+     * Tests that the batches failed to be written by the thin client are counted.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testThinClientFailureMetrics() throws Exception {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.remove(IgniteSinkConstants.CACHE_CFG_PATH);
+        props.put(IgniteSinkConstants.THIN_CLIENT_ADDRESSES, "127.0.0.1:10800");
+        props.put(IgniteSinkConstants.CACHE_NAME, "missingCache");
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(props);
+
+        try {
+            GridTestUtils.assertThrows(log, () -> {
+                task.put(sinkRecords(new TopicPartition(TOPICS[0], 0), 0, 10, "v"));
+
+                return null;
+            }, RuntimeException.class, null);
+
+            IgniteSinkTaskMetricsMXBean metrics =
+                taskMetrics(new ObjectName(IgniteSinkTaskMetrics.MBEAN_DOMAIN + ":type=IgniteSinkTask,*"));
+
+            assertEquals(1, metrics.getFailedBatches());
+        }
+        finally {
+            task.stop();
+        }
+    }
+
+    /**
+     * @param pattern Name pattern matching the MBean of a single task.
+     * @return Proxy of the task metrics MBean.
+     */
+    private IgniteSinkTaskMetricsMXBean taskMetrics(ObjectName pattern) {
+        MBeanServer srv = ManagementFactory.getPlatformMBeanServer();
+
+        Set<ObjectName> names = srv.queryNames(pattern, null);
+
+        assertEquals(1, names.size());
+
+        return JMX.newMXBeanProxy(srv, F.first(names), IgniteSinkTaskMetricsMXBean.class);
+    }
+
+    /**
+     * Tests that the tasks are assigned indexes and count the records whose converted keys are mapped to the primary
+     * nodes of their host.
+     *
+     * @throws Exception if failed.
+     */
+    @Test
+    public void testPrimaryLocalityMetrics() throws Exception {
+        Map<String, String> props = makeSinkProps(TOPICS[0]);
+
+        props.remove(IgniteSinkConstants.SINGLE_TUPLE_EXTRACTOR_CLASS);
+        props.put(IgniteSinkConstants.STRUCT_TO_BINARY, "true");
+        props.put(IgniteSinkConstants.PRIMARY_LOCALITY_METRICS, "true");
+
+        IgniteSinkConnector connector = new IgniteSinkConnector();
+
+        connector.start(props);
+
+        List<Map<String, String>> taskConfigs = connector.taskConfigs(2);
+
+        assertEquals("0", taskConfigs.get(0).get(IgniteSinkConstants.TASK_ID));
+        assertEquals("1", taskConfigs.get(1).get(IgniteSinkConstants.TASK_ID));
+
+        Schema keySchema = SchemaBuilder.struct().name("PersonKey")
+            .field("id", Schema.INT32_SCHEMA)
+            .field("region", Schema.STRING_SCHEMA)
+            .build();
+
+        List<SinkRecord> records = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            Struct key = new Struct(keySchema).put("id", i).put("region", "EU");
+
+            records.add(new SinkRecord(TOPICS[0], 0, keySchema, key, Schema.STRING_SCHEMA, "v" + i, i));
+        }
+
+        MBeanServer srv = ManagementFactory.getPlatformMBeanServer();
+
+        ObjectName name = new ObjectName(IgniteSinkTaskMetrics.MBEAN_DOMAIN + ":type=IgniteSinkTask,cache=" +
+            ObjectName.quote(CACHE_NAME) + ",connector=" + ObjectName.quote("test-sink-connector") + ",task=1");
+
+        IgniteSinkTask task = new IgniteSinkTask();
+
+        task.start(taskConfigs.get(1));
+
+        try {
+            task.put(records);
+            task.flush(Collections.emptyMap());
+
+            IgniteSinkTaskMetricsMXBean metrics = JMX.newMXBeanProxy(srv, name, IgniteSinkTaskMetricsMXBean.class);
+
+            // All the nodes of the test reside on the same host.
+            assertEquals(10, metrics.getLocalPrimaryRecords());
+            assertEquals(0, metrics.getRemotePrimaryRecords());
+        }
+        finally {
+            task.stop();
+        }
+
+        assertEquals(10, grid.cache(CACHE_NAME).size(CachePeekMode.PRIMARY));
+    }
+
+    /**
+     * @param part Partition.
+     * @param from First offset, inclusive.
+     * @param to Last offset, exclusive.
+     * @param val Value of the records.
+     * @return Sink records keyed by their offsets.
+     */
+    private Collection<SinkRecord> sinkRecords(TopicPartition part, int from, int to, String val) {
+        Collection<SinkRecord> records = new ArrayList<>();
+
+        for (int i = from; i < to; i++)
+            records.add(new SinkRecord(part.topic(), part.partition(), null, String.valueOf(i), null, val, i));
+
+        return records;
+    }
+
     /**
      * Tests the whole data flow from injecting data to Kafka to transferring it to the grid. It reads from two
      * specified Kafka topics, because a sink task can read from multiple topics.
@@ -260,7 +1097,7 @@ public class IgniteSinkConnectorTest extends GridCommonAbstractTest {
         props.put(SinkConnector.TOPICS_CONFIG, topics);
         props.put(ConnectorConfig.TASKS_MAX_CONFIG, "2");
         props.put(ConnectorConfig.NAME_CONFIG, "test-sink-connector");
-        props.put(ConnectorConfig.CONNECTOR_CLASS_CONFIG, IgniteSinkConnectorMock.class.getName());
+        props.put(ConnectorConfig.CONNECTOR_CLASS_CONFIG, IgniteSinkConnector.class.getName());
         props.put(IgniteSinkConstants.CACHE_NAME, "testCache");
         props.put(IgniteSinkConstants.CACHE_ALLOW_OVERWRITE, "true");
         props.put(IgniteSinkConstants.CACHE_CFG_PATH, "example-ignite.xml");
@@ -294,6 +1131,37 @@ public class IgniteSinkConnectorTest extends GridCommonAbstractTest {
         return props;
     }
 
+    /**
+     * Entry processor appending the streamed value to the cached one.
+     */
+    public static class AppendProcessor implements CacheEntryProcessor<String, String, Object> {
+        /** */
+        private static final long serialVersionUID = 0L;
+
+        /** {@inheritDoc} */
+        @Override public Object process(MutableEntry<String, String> entry, Object... args) {
+            String val = entry.getValue();
+
+            entry.setValue(val == null ? (String)args[0] : val + args[0]);
+
+            return null;
+        }
+    }
+
+    /**
+     * Stream receiver failing to receive entries.
+     */
+    public static class FailingReceiver implements StreamReceiver<Object, Object> {
+        /** */
+        private static final long serialVersionUID = 0L;
+
+        /** {@inheritDoc} */
+        @Override public void receive(IgniteCache<Object, Object> cache,
+            Collection<Map.Entry<Object, Object>> entries) {
+            throw new IgniteException("Test failure.");
+        }
+    }
+
     /**
      * Test transformer.
      */
@@ -18,16 +18,23 @@
 package org.apache.ignite.stream.kafka.connect;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.cache.Cache;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
+import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.cache.CachePeekMode;
 import org.apache.ignite.configuration.IgniteConfiguration;
 import org.apache.ignite.events.CacheEvent;
@@ -43,6 +50,9 @@ import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.utils.SystemTime;
 import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.runtime.ConnectorConfig;
 import org.apache.kafka.connect.runtime.Herder;
 import org.apache.kafka.connect.runtime.Worker;
@@ -51,7 +61,10 @@ import org.apache.kafka.connect.runtime.isolation.Plugins;
 import org.apache.kafka.connect.runtime.rest.entities.ConnectorInfo;
 import org.apache.kafka.connect.runtime.standalone.StandaloneConfig;
 import org.apache.kafka.connect.runtime.standalone.StandaloneHerder;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.source.SourceTaskContext;
 import org.apache.kafka.connect.storage.MemoryOffsetBackingStore;
+import org.apache.kafka.connect.storage.OffsetStorageReader;
 import org.apache.kafka.connect.util.Callback;
 import org.apache.kafka.connect.util.ConnectUtils;
 import org.apache.kafka.connect.util.FutureCallback;
@@ -122,12 +135,6 @@ public class IgniteSourceConnectorTest extends GridCommonAbstractTest {
         kafkaBroker.shutdown();
 
         grid.cache(CACHE_NAME).clear();
-
-        // reset cache name to overwrite task configurations.
-        Field field = IgniteSourceTask.class.getDeclaredField("cacheName");
-
-        field.setAccessible(true);
-        field.set(IgniteSourceTask.class, null);
     }
 
     /**
@@ -155,6 +162,544 @@ public class IgniteSourceConnectorTest extends GridCommonAbstractTest {
         doTest(makeSourceProps(Utils.join(TOPICS, ",")), true);
     }
 
+    /**
+     * Tests data flow from injecting data into grid and transferring it to Kafka cluster with a continuous query.
+     *
+     * @throws Exception Thrown in case of the failure.
+     */
+    @Test
+    public void testEventsInjectedIntoKafkaWithContinuousQuery() throws Exception {
+        Map<String, String> srcProps = makeSourceProps(Utils.join(TOPICS, ","));
+
+        srcProps.put(IgniteSourceConstants.CONTINUOUS_QUERY, "true");
+        srcProps.put(IgniteSourceConstants.CQ_PAGE_SIZE, "10");
+        srcProps.put(IgniteSourceConstants.CQ_TIME_INTERVAL, "100");
+
+        doTest(srcProps, true);
+    }
+
+    /**
+     * Tests that the task resumes from the committed partition update counters, and injects only the entries of the
+     * partitions updated while it was stopped.
+     *
+     * @throws Exception Thrown in case of the failure.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResumeFromCommittedOffsets() throws Exception {
+        Map<String, String> srcProps = makeSourceProps(TOPICS[0]);
+
+        srcProps.remove(IgniteSourceConstants.CACHE_FILTER_CLASS);
+        srcProps.put(IgniteSourceConstants.CONTINUOUS_QUERY, "true");
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        Map<Map<String, Object>, Map<String, Object>> committed = new HashMap<>();
+
+        IgniteSourceTask task = new IgniteSourceTask();
+
+        task.initialize(sourceTaskContext(committed));
+        task.start(srcProps);
+
+        try {
+            Set<String> keys = new HashSet<>();
+
+            for (int i = 0; i < 10; i++) {
+                cache.put("key" + i, "val" + i);
+
+                keys.add("key" + i);
+            }
+
+            for (SourceRecord record : pollRecords(task, keys)) {
+                committed.put((Map<String, Object>)record.sourcePartition(),
+                    (Map<String, Object>)record.sourceOffset());
+            }
+        }
+        finally {
+            task.stop();
+        }
+
+        Set<Integer> updatedParts = new HashSet<>();
+
+        for (int i = 0; i < 5; i++) {
+            cache.put("resumed" + i, "val" + i);
+
+            updatedParts.add(grid.affinity(CACHE_NAME).partition("resumed" + i));
+        }
+
+        Set<String> expKeys = new HashSet<>();
+
+        for (Cache.Entry<String, String> e : cache) {
+            if (updatedParts.contains(grid.affinity(CACHE_NAME).partition(e.getKey())))
+                expKeys.add(e.getKey());
+        }
+
+        task = new IgniteSourceTask();
+
+        task.initialize(sourceTaskContext(committed));
+        task.start(srcProps);
+
+        try {
+            Set<String> keys = new HashSet<>();
+
+            for (SourceRecord record : pollRecords(task, expKeys))
+                keys.add((String)((CacheEvent)record.value()).key());
+
+            assertEquals(expKeys, keys);
+        }
+        finally {
+            task.stop();
+        }
+    }
+
+    /**
+     * Tests that a partition is scanned again if the task fails before all the entries of the partition are injected.
+     *
+     * @throws Exception Thrown in case of the failure.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResumeAfterFailureDuringScan() throws Exception {
+        Map<String, String> srcProps = makeSourceProps(TOPICS[0]);
+
+        srcProps.remove(IgniteSourceConstants.CACHE_FILTER_CLASS);
+        srcProps.put(IgniteSourceConstants.CONTINUOUS_QUERY, "true");
+        srcProps.put(IgniteSourceConstants.INTL_BATCH_SIZE, "2");
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        Map<Map<String, Object>, Map<String, Object>> committed = new HashMap<>();
+
+        IgniteSourceTask task = new IgniteSourceTask();
+
+        task.initialize(sourceTaskContext(committed));
+        task.start(srcProps);
+
+        try {
+            cache.put("key0", "val0");
+
+            for (SourceRecord record : pollRecords(task, Collections.singleton("key0"))) {
+                committed.put((Map<String, Object>)record.sourcePartition(),
+                    (Map<String, Object>)record.sourceOffset());
+            }
+        }
+        finally {
+            task.stop();
+        }
+
+        int part = grid.affinity(CACHE_NAME).partition("key0");
+
+        Map<String, Object> srcPart = null;
+
+        for (Map<String, Object> p : committed.keySet()) {
+            if (p.get(IgniteSourceTask.PARTITION_FIELD).equals(part))
+                srcPart = p;
+        }
+
+        assertNotNull(srcPart);
+
+        long cntr = (Long)committed.get(srcPart).get(IgniteSourceTask.UPDATE_COUNTER_FIELD);
+
+        Set<String> expKeys = new HashSet<>();
+
+        expKeys.add("key0");
+
+        for (int i = 0; expKeys.size() < 6; i++) {
+            if (grid.affinity(CACHE_NAME).partition("resumed" + i) == part) {
+                cache.put("resumed" + i, "val" + i);
+
+                expKeys.add("resumed" + i);
+            }
+        }
+
+        task = new IgniteSourceTask();
+
+        task.initialize(sourceTaskContext(committed));
+        task.start(srcProps);
+
+        try {
+            boolean scanned = false;
+
+            // Polls until the first entries of the partition are injected, the batch is smaller than the partition.
+            while (!scanned) {
+                List<SourceRecord> batch = task.poll();
+
+                assertNotNull(batch);
+
+                for (SourceRecord record : batch) {
+                    if (record.sourcePartition().equals(srcPart)) {
+                        // Counter is not advanced until all the entries of the partition are injected.
+                        assertEquals(cntr, record.sourceOffset().get(IgniteSourceTask.UPDATE_COUNTER_FIELD));
+
+                        scanned = true;
+                    }
+
+                    committed.put((Map<String, Object>)record.sourcePartition(),
+                        (Map<String, Object>)record.sourceOffset());
+                }
+            }
+        }
+        finally {
+            // Fails before the rest of the partition is injected.
+            task.stop();
+        }
+
+        task = new IgniteSourceTask();
+
+        task.initialize(sourceTaskContext(committed));
+        task.start(srcProps);
+
+        try {
+            Set<String> keys = new HashSet<>();
+
+            for (SourceRecord record : pollRecords(task, expKeys)) {
+                if (record.sourcePartition().equals(srcPart))
+                    keys.add((String)((CacheEvent)record.value()).key());
+
+                committed.put((Map<String, Object>)record.sourcePartition(),
+                    (Map<String, Object>)record.sourceOffset());
+            }
+
+            assertEquals(expKeys, keys);
+
+            assertTrue((Long)committed.get(srcPart).get(IgniteSourceTask.UPDATE_COUNTER_FIELD) > cntr);
+        }
+        finally {
+            task.stop();
+        }
+    }
+
+    /**
+     * Tests that the updates captured while the partitions updated before the restart are scanned are not lost when
+     * they overflow the event buffer.
+     *
+     * @throws Exception Thrown in case of the failure.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNoUpdatesLostDuringScan() throws Exception {
+        Map<String, String> srcProps = makeSourceProps(TOPICS[0]);
+
+        srcProps.remove(IgniteSourceConstants.CACHE_FILTER_CLASS);
+        srcProps.put(IgniteSourceConstants.CONTINUOUS_QUERY, "true");
+        srcProps.put(IgniteSourceConstants.INTL_BATCH_SIZE, "2");
+        srcProps.put(IgniteSourceConstants.INTL_BUF_SIZE, "4");
+
+        IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+        Map<Map<String, Object>, Map<String, Object>> committed = new HashMap<>();
+
+        IgniteSourceTask task = new IgniteSourceTask();
+
+        task.initialize(sourceTaskContext(committed));
+        task.start(srcProps);
+
+        try {
+            cache.put("key0", "val0");
+
+            for (SourceRecord record : pollRecords(task, Collections.singleton("key0"))) {
+                committed.put((Map<String, Object>)record.sourcePartition(),
+                    (Map<String, Object>)record.sourceOffset());
+            }
+        }
+        finally {
+            task.stop();
+        }
+
+        Set<String> expKeys = new HashSet<>();
+
+        for (int i = 0; i < 20; i++) {
+            cache.put("resumed" + i, "val" + i);
+
+            expKeys.add("resumed" + i);
+        }
+
+        task = new IgniteSourceTask();
+
+        task.initialize(sourceTaskContext(committed));
+        task.start(srcProps);
+
+        try {
+            // Starts the scan, the batch is smaller than the updated partitions.
+            assertNotNull(task.poll());
+
+            for (int i = 0; i < 50; i++) {
+                cache.put("live" + i, "val" + i);
+
+                expKeys.add("live" + i);
+            }
+
+            pollRecords(task, expKeys);
+        }
+        finally {
+            task.stop();
+        }
+    }
+
+    /**
+     * Tests that the cache partitions are split across the tasks, so that each update is injected by a single task.
+     *
+     * @throws Exception Thrown in case of the failure.
+     */
+    @Test
+    public void testPartitionsSplitAcrossTasks() throws Exception {
+        Map<String, String> srcProps = makeSourceProps(TOPICS[0]);
+
+        srcProps.remove(IgniteSourceConstants.CACHE_FILTER_CLASS);
+        srcProps.put(IgniteSourceConstants.CONTINUOUS_QUERY, "true");
+
+        IgniteSourceConnector connector = new IgniteSourceConnector();
+
+        connector.start(srcProps);
+
+        List<Map<String, String>> taskProps = connector.taskConfigs(2);
+
+        assertEquals(2, taskProps.size());
+
+        List<IgniteSourceTask> tasks = new ArrayList<>();
+
+        try {
+            for (Map<String, String> props : taskProps) {
+                IgniteSourceTask task = new IgniteSourceTask();
+
+                task.initialize(sourceTaskContext(new HashMap<>()));
+                task.start(props);
+
+                tasks.add(task);
+            }
+
+            IgniteCache<String, String> cache = grid.cache(CACHE_NAME);
+
+            Set<String> keys = new HashSet<>();
+
+            for (int i = 0; i < EVENT_CNT; i++) {
+                cache.put("key" + i, "val" + i);
+
+                keys.add("key" + i);
+            }
+
+            List<Set<String>> taskKeys = new ArrayList<>();
+
+            for (int i = 0; i < tasks.size(); i++)
+                taskKeys.add(new HashSet<>());
+
+            assertTrue(GridTestUtils.waitForCondition(() -> {
+                Set<String> polled = new HashSet<>();
+
+                for (int i = 0; i < tasks.size(); i++) {
+                    try {
+                        List<SourceRecord> batch = tasks.get(i).poll();
+
+                        if (batch != null) {
+                            for (SourceRecord record : batch)
+                                assertTrue(taskKeys.get(i).add((String)((CacheEvent)record.value()).key()));
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+
+                    polled.addAll(taskKeys.get(i));
+                }
+
+                return polled.containsAll(keys);
+            }, 10_000));
+
+            Set<String> common = new HashSet<>(taskKeys.get(0));
+
+            common.retainAll(taskKeys.get(1));
+
+            assertTrue("Keys injected by both tasks: " + common, common.isEmpty());
+
+            assertFalse(taskKeys.get(0).isEmpty());
+            assertFalse(taskKeys.get(1).isEmpty());
+        }
+        finally {
+            for (IgniteSourceTask task : tasks)
+                task.stop();
+
+            connector.stop();
+        }
+    }
+
+    /**
+     * Tests that the cache keys and binary values are emitted with Connect schemas, and removals as tombstones.
+     *
+     * @throws Exception Thrown in case of the failure.
+     */
+    @Test
+    public void testBinaryToStruct() throws Exception {
+        Map<String, String> srcProps = makeSourceProps(TOPICS[0]);
+
+        srcProps.remove(IgniteSourceConstants.CACHE_FILTER_CLASS);
+        srcProps.put(IgniteSourceConstants.CONTINUOUS_QUERY, "true");
+        srcProps.put(IgniteSourceConstants.CACHE_EVENTS, "put,removed");
+        srcProps.put(IgniteSourceConstants.BINARY_TO_STRUCT, "true");
+
+        IgniteSourceTask task = new IgniteSourceTask();
+
+        task.initialize(sourceTaskContext(new HashMap<>()));
+        task.start(srcProps);
+
+        try {
+            IgniteCache<String, BinaryObject> cache = grid.cache(CACHE_NAME).withKeepBinary();
+
+            cache.put("key0", grid.binary().builder("Person").setField("name", "name0").setField("age", 30).build());
+
+            cache.remove("key0");
+
+            List<SourceRecord> records = new ArrayList<>();
+
+            assertTrue(GridTestUtils.waitForCondition(() -> {
+                try {
+                    List<SourceRecord> batch = task.poll();
+
+                    if (batch != null)
+                        records.addAll(batch);
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+
+                return records.size() >= 2;
+            }, 10_000));
+
+            assertEquals(2, records.size());
+
+            SourceRecord put = records.get(0);
+
+            assertEquals(Schema.Type.STRING, put.keySchema().type());
+            assertEquals("key0", put.key());
+
+            Struct val = (Struct)put.value();
+
+            assertEquals("Person", put.valueSchema().name());
+            assertEquals("name0", val.getString("name"));
+            assertEquals(30, (int)val.getInt32("age"));
+
+            SourceRecord rmv = records.get(1);
+
+            assertEquals("key0", rmv.key());
+            assertNull(rmv.value());
+        }
+        finally {
+            task.stop();
+        }
+    }
+
+    /**
+     * Tests that the struct schema of a binary type is rebuilt when the type gets new fields.
+     */
+    @Test
+    public void testBinaryToStructNewFields() {
+        BinaryToStructConverter converter = new BinaryToStructConverter(grid.binary());
+
+        SchemaAndValue res = converter.convert(grid.binary().builder("Employee").setField("name", "name0").build());
+
+        assertNotNull(res.schema().field("name"));
+        assertNull(res.schema().field("dept"));
+
+        res = converter.convert(grid.binary().builder("Employee").setField("name", "name1")
+            .setField("dept", "dept1").build());
+
+        assertEquals("name1", ((Struct)res.value()).getString("name"));
+        assertEquals("dept1", ((Struct)res.value()).getString("dept"));
+    }
+
+    /**
+     * Tests that equal nested binary objects are converted into equal strings.
+     */
+    @Test
+    public void testBinaryToStructNestedObjects() {
+        BinaryToStructConverter converter = new BinaryToStructConverter(grid.binary());
+
+        List<Object> addrs = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            BinaryObject addr = grid.binary().builder("Address").setField("zip", 75000).setField("city", "Paris")
+                .build();
+
+            SchemaAndValue res = converter.convert(grid.binary().builder("Customer").setField("name", "name0")
+                .setField("addr", addr).build());
+
+            addrs.add(((Struct)res.value()).get("addr"));
+        }
+
+        assertEquals("Address [city=Paris, zip=75000]", addrs.get(0));
+        assertEquals(addrs.get(0), addrs.get(1));
+    }
+
+    /**
+     * Polls the continuous query records of the task until the records of the given keys are polled.
+     *
+     * @param task Task.
+     * @param keys Keys.
+     * @return Polled records.
+     * @throws Exception If failed.
+     */
+    private List<SourceRecord> pollRecords(IgniteSourceTask task, Set<String> keys) throws Exception {
+        List<SourceRecord> records = new ArrayList<>();
+
+        Set<String> polled = new HashSet<>();
+
+        assertTrue(GridTestUtils.waitForCondition(() -> {
+            try {
+                List<SourceRecord> batch = task.poll();
+
+                if (batch != null) {
+                    for (SourceRecord record : batch) {
+                        // Skips the records without update counters.
+                        if (record.sourcePartition().get(IgniteSourceTask.PARTITION_FIELD) == null)
+                            continue;
+
+                        records.add(record);
+
+                        polled.add((String)((CacheEvent)record.value()).key());
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+
+            return polled.containsAll(keys);
+        }, 10_000));
+
+        return records;
+    }
+
+    /**
+     * @param offsets Committed offsets.
+     * @return Source task context reading the committed offsets.
+     */
+    private SourceTaskContext sourceTaskContext(Map<Map<String, Object>, Map<String, Object>> offsets) {
+        OffsetStorageReader reader = new OffsetStorageReader() {
+            @Override public <T> Map<String, Object> offset(Map<String, T> partition) {
+                return offsets.get(partition);
+            }
+
+            @Override public <T> Map<Map<String, T>, Map<String, Object>> offsets(
+                Collection<Map<String, T>> partitions) {
+                Map<Map<String, T>, Map<String, Object>> res = new HashMap<>();
+
+                for (Map<String, T> partition : partitions)
+                    res.put(partition, offsets.get(partition));
+
+                return res;
+            }
+        };
+
+        return new SourceTaskContext() {
+            @Override public Map<String, String> configs() {
+                return null;
+            }
+
+            @Override public OffsetStorageReader offsetStorageReader() {
+                return reader;
+            }
+        };
+    }
+
     /**
      * Tests the source with the specified source configurations.
      *
@@ -317,7 +862,7 @@ public class IgniteSourceConnectorTest extends GridCommonAbstractTest {
 
         props.put(ConnectorConfig.TASKS_MAX_CONFIG, "2");
         props.put(ConnectorConfig.NAME_CONFIG, "test-src-connector");
-        props.put(ConnectorConfig.CONNECTOR_CLASS_CONFIG, IgniteSourceConnectorMock.class.getName());
+        props.put(ConnectorConfig.CONNECTOR_CLASS_CONFIG, IgniteSourceConnector.class.getName());
         props.put(IgniteSourceConstants.CACHE_NAME, "testCache");
         props.put(IgniteSourceConstants.CACHE_CFG_PATH, "example-ignite.xml");
         props.put(IgniteSourceConstants.TOPIC_NAMES, topics);